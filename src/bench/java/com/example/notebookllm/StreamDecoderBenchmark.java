@@ -0,0 +1,111 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * 对比 {@link ChatStreamDecoder} 与原先按行读取 + readTree 的解析方式的耗时和内存分配。
+ * 位于 src/bench/java，只在 bench 配置下作为测试源码编译，不会打进应用 jar。
+ * 用法：mvn -q -Pbench test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.example.notebookllm.StreamDecoderBenchmark [-Dexec.args="事件数 轮数"]
+ */
+public class StreamDecoderBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        byte[] stream = sampleStream(events);
+        System.out.printf("每轮 %d 个事件，%d 字节，%d 轮（另有 %d 轮预热）%n", events, stream.length, rounds, rounds);
+
+        for (int i = 0; i < rounds; i++) {
+            decodeWithTree(stream);
+            decodeWithStreamingParser(stream);
+        }
+        report("readTree", stream, events, rounds, true);
+        report("ChatStreamDecoder", stream, events, rounds, false);
+    }
+
+    private static void report(String name, byte[] stream, int events, int rounds, boolean tree) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int length = 0;
+        for (int i = 0; i < rounds; i++) {
+            length += tree ? decodeWithTree(stream) : decodeWithStreamingParser(stream);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        long total = (long) events * rounds;
+        System.out.printf("%-18s %8.1f ns/事件 %8.1f 字节分配/事件（内容长度校验 %d）%n",
+                name, (double) nanos / total, (double) allocated / total, length / rounds);
+    }
+
+    /**
+     * 模拟 Chat Completions 流：每个事件一个 delta 片段，最后是 usage 和 [DONE]
+     */
+    private static byte[] sampleStream(int events) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            sb.append("data: {\"id\":\"chatcmpl-123\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,")
+              .append("\"model\":\"qwen3-32b-fp8\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"片段")
+              .append(i % 100).append(" token\"},\"logprobs\":null,\"finish_reason\":null}]}\n\n");
+        }
+        sb.append("data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n");
+        sb.append("data: {\"choices\":[],\"usage\":{\"prompt_tokens\":100,\"completion_tokens\":").append(events)
+          .append(",\"total_tokens\":").append(events + 100).append("}}\n\n");
+        sb.append("data: [DONE]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int decodeWithStreamingParser(byte[] stream) throws IOException {
+        BufferedSource src = new Buffer().write(stream);
+        ChatStreamDecoder decoder = new ChatStreamDecoder(src, new CompletionResult(""));
+        int length = 0;
+        String c;
+        while ((c = decoder.nextContent()) != null) {
+            length += c.length();
+        }
+        return length;
+    }
+
+    /**
+     * 与重构前 LLMClient.analyzeStream 相同的解析方式
+     */
+    private static int decodeWithTree(byte[] stream) throws IOException {
+        BufferedSource src = new Buffer().write(stream);
+        CompletionResult result = new CompletionResult("");
+        int length = 0;
+        while (!src.exhausted()) {
+            String line = src.readUtf8Line();
+            if (line == null) break;
+            line = line.trim();
+            if (line.isEmpty() || !line.startsWith("data: ")) continue;
+            String data = line.substring(6).trim();
+            if ("[DONE]".equals(data)) break;
+            JsonNode root = MAPPER.readTree(data);
+            JsonNode first = root.path("choices").path(0);
+            if (first.has("delta") && first.get("delta").has("content")) {
+                length += first.get("delta").get("content").asText().length();
+            }
+            JsonNode finish = first.get("finish_reason");
+            if (finish != null && !finish.isNull()) {
+                result.finishReason = finish.asText();
+            }
+            JsonNode usage = root.get("usage");
+            if (usage != null && usage.isObject()) {
+                result.totalTokens = usage.path("total_tokens").asInt(-1);
+            }
+        }
+        return length;
+    }
+}
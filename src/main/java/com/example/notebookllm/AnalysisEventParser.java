@@ -0,0 +1,328 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分析结果 JSON 的增量解析器：流式片段到达时用 Jackson 非阻塞解析器解析，
+ * 某个字段或数组元素一完整就发出事件，不必等待整个响应结束。
+ * 顶层是对象时只有一个结果（序号 0）；顶层是数组时（合并请求）每个对象元素是一个结果，按出现顺序编号。
+ * 与 {@link JsonResultFilter} 相同，只有位于行首或紧跟 ``` 代码块标记的 { 或 [ 才可能是结果的开始，
+ * &lt;think&gt; 块中的内容被跳过；正文中的 [demo] 之类括号解析出错或不含结果对象时，
+ * 从它之后继续查找下一个开始位置。含有结果的顶层值结束后不再处理后续内容。
+ */
+public class AnalysisEventParser {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisEventParser.class);
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final String THINK_OPEN = "<think>";
+    private static final String THINK_CLOSE = "</think>";
+    private static final String FENCE = "```";
+
+    /**
+     * 解析事件，在调用 {@link #feed(String)} 的线程中回调
+     */
+    public interface Listener {
+        /**
+         * 结果对象中的一个简单字段完整，例如 project_name、summary、risk_level
+         */
+        void field(int result, String name, String value);
+
+        /**
+         * 结果对象中某个数组字段的一个元素完整，例如 modules 中的一个模块、issues 中的一个问题
+         */
+        void item(int result, String field, JsonNode item);
+
+        /**
+         * 一个结果对象完整
+         */
+        void resultEnd(int result, ObjectNode node);
+    }
+
+    /**
+     * 正在构建的对象或数组，以及它在上一层中的字段名
+     */
+    private static class Frame {
+        final JsonNode node;
+        final String name;
+
+        Frame(JsonNode node, String name) {
+            this.node = node;
+            this.name = name;
+        }
+    }
+
+    private final Listener listener;
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private String pendingField;
+    private boolean rootIsArray;
+    private int result = -1;
+    private boolean finished;
+
+    // 尚未确定的文本：查找开始位置时是未扫描的部分，解析时从当前候选值的开头保留，出错后从中重新查找
+    private final StringBuilder text = new StringBuilder();
+    // 下一个要扫描的位置
+    private int scan;
+    // 扫描位置位于行首（之前只有空白）或紧跟代码块标记
+    private boolean lineStart = true;
+    private boolean inThink;
+    // 正在解析从 text 开头开始的候选值
+    private boolean parsing;
+
+    public AnalysisEventParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 输入一个片段，解析出的事件同步回调给监听器
+     */
+    public void feed(String chunk) {
+        if (finished || chunk.isEmpty()) {
+            return;
+        }
+        text.append(chunk);
+        if (parsing) {
+            parse(chunk);
+        }
+        while (!finished && !parsing) {
+            int start = findJsonStart();
+            // 丢掉已经扫描过的文本，只保留可能是标记开头的尾部
+            int keep = start >= 0 ? start : scan;
+            text.delete(0, keep);
+            scan -= keep;
+            if (start < 0) return;
+            begin();
+            parse(text.toString());
+        }
+    }
+
+    /**
+     * 含有结果的顶层值已经完整
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 从 scan 开始查找可能是结果开头的 { 或 [，返回它在 text 中的位置；
+     * 没有找到或文本在标记中间结束时返回 -1，scan 停在下次继续的位置
+     */
+    private int findJsonStart() {
+        int n = text.length();
+        while (scan < n) {
+            if (inThink) {
+                int close = text.indexOf(THINK_CLOSE, scan);
+                if (close < 0) {
+                    // 保留可能是结束标记开头的尾部
+                    scan = Math.max(scan, n - (THINK_CLOSE.length() - 1));
+                    return -1;
+                }
+                scan = close + THINK_CLOSE.length();
+                inThink = false;
+                lineStart = true;
+                continue;
+            }
+            char c = text.charAt(scan);
+            if (c == '<' || c == '`') {
+                String marker = c == '<' ? THINK_OPEN : FENCE;
+                int match = matchLength(scan, marker);
+                if (match == marker.length()) {
+                    if (c == '<') {
+                        scan += match;
+                        inThink = true;
+                        continue;
+                    }
+                    // 跳过代码块的语言标记，例如 ```json
+                    int lang = scan + match;
+                    while (lang < n && Character.isLetterOrDigit(text.charAt(lang))) lang++;
+                    if (lang == n) return -1;
+                    scan = lang;
+                    lineStart = true;
+                    continue;
+                }
+                if (scan + match == n) {
+                    // 片段在标记中间结束
+                    return -1;
+                }
+            } else if ((c == '{' || c == '[') && lineStart) {
+                return scan;
+            }
+            if (c == '\n') {
+                lineStart = true;
+            } else if (!Character.isWhitespace(c)) {
+                lineStart = false;
+            }
+            scan++;
+        }
+        return -1;
+    }
+
+    private int matchLength(int from, String marker) {
+        int k = 0;
+        while (k < marker.length() && from + k < text.length() && text.charAt(from + k) == marker.charAt(k)) k++;
+        return k;
+    }
+
+    /**
+     * 从 text 开头的 { 或 [ 开始解析一个候选值
+     */
+    private void begin() {
+        try {
+            parser = FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        stack.clear();
+        pendingField = null;
+        rootIsArray = false;
+        result = -1;
+        parsing = true;
+    }
+
+    private void parse(String input) {
+        try {
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (parsing && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        } catch (IOException e) {
+            logger.debug("候选 JSON 解析失败，继续查找结果的开头: {}", e.getMessage());
+            abandon();
+        }
+    }
+
+    /**
+     * 当前候选值不是结果，从它的第一个字符之后重新查找
+     */
+    private void abandon() {
+        parsing = false;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            logger.debug("关闭解析器失败: {}", e.getMessage());
+        }
+        scan = 1;
+        lineStart = false;
+    }
+
+    /**
+     * 顶层值结束：含有结果对象时结束解析，否则（例如行首的 [1]）当作普通文本继续查找
+     */
+    private void rootEnded() {
+        if (result < 0) {
+            abandon();
+            return;
+        }
+        parsing = false;
+        finished = true;
+        text.setLength(0);
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case FIELD_NAME:
+                pendingField = parser.getCurrentName();
+                return;
+            case START_OBJECT:
+            case START_ARRAY: {
+                JsonNode container = token == JsonToken.START_OBJECT
+                        ? JsonNodeFactory.instance.objectNode() : JsonNodeFactory.instance.arrayNode();
+                if (stack.isEmpty()) {
+                    rootIsArray = token == JsonToken.START_ARRAY;
+                } else {
+                    attach(container);
+                }
+                stack.push(new Frame(container, pendingField));
+                pendingField = null;
+                if (container.isObject() && stack.size() == resultDepth()) {
+                    result++;
+                }
+                return;
+            }
+            case END_OBJECT:
+            case END_ARRAY: {
+                Frame frame = stack.pop();
+                completed(frame.node, frame.name);
+                if (stack.isEmpty()) {
+                    rootEnded();
+                }
+                return;
+            }
+            default: {
+                JsonNode value = scalar(token);
+                if (stack.isEmpty()) {
+                    // 候选值总是从 { 或 [ 开始，不会出现顶层标量
+                    abandon();
+                    return;
+                }
+                String name = pendingField;
+                attach(value);
+                pendingField = null;
+                completed(value, name);
+            }
+        }
+    }
+
+    /**
+     * 结果对象所在的层数：顶层对象为 1，顶层数组中的对象为 2
+     */
+    private int resultDepth() {
+        return rootIsArray ? 2 : 1;
+    }
+
+    private void completed(JsonNode value, String name) {
+        int depth = stack.size();
+        int resultDepth = resultDepth();
+        if (result < 0) {
+            return;
+        }
+        if (depth == resultDepth - 1 && value.isObject()) {
+            listener.resultEnd(result, (ObjectNode) value);
+        } else if (depth == resultDepth && value.isValueNode() && name != null) {
+            listener.field(result, name, value.asText());
+        } else if (depth == resultDepth + 1 && stack.peek().node.isArray()) {
+            listener.item(result, stack.peek().name, value);
+        }
+    }
+
+    private void attach(JsonNode value) {
+        JsonNode parent = stack.peek().node;
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(pendingField, value);
+        } else {
+            ((ArrayNode) parent).add(value);
+        }
+    }
+
+    private JsonNode scalar(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING: return JsonNodeFactory.instance.textNode(parser.getText());
+            case VALUE_NUMBER_INT: return JsonNodeFactory.instance.numberNode(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT: return JsonNodeFactory.instance.numberNode(parser.getDoubleValue());
+            case VALUE_TRUE: return JsonNodeFactory.instance.booleanNode(true);
+            case VALUE_FALSE: return JsonNodeFactory.instance.booleanNode(false);
+            default: return JsonNodeFactory.instance.nullNode();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 无界面的批量分析压测：与界面中的批量分析使用相同的提示词构建和 {@link AnalysisPipeline}，
+ * 对模型服务（默认启动内置的 {@link MockLLMServer}）分析一批项目，输出吞吐量和延迟分位数。
+ * 分析结果不写入历史记录，也不使用响应缓存。
+ * 用法：mvn -q exec:java -Dexec.mainClass=com.example.notebookllm.AnalysisLoadTest
+ *       -Dexec.args="--projects 40 --concurrency 4 --ttft 300 --tps 40"
+ * 参数：
+ *   --url 地址[,地址...]   使用已有的模型服务，不启动内置模拟服务
+ *   --dir 目录             分析该目录下扫描到的项目，默认生成 --projects 个临时项目
+ *   --concurrency N        同时进行的模型调用数，默认 4；--auto-tune true 时为上限
+ *   --batch N              合并小项目，每个请求最多 N 个项目
+ *   --stop-after-json B    JSON 结果完整后是否提前结束流式响应，默认按配置 analysis.stopAfterJson
+ *   --ttft --tps --error-rate --error-status --reasoning --replay   内置模拟服务的参数
+ */
+public class AnalysisLoadTest {
+
+    /**
+     * 记录每次模型调用的耗时
+     */
+    private static class Recorder implements AnalysisPipeline.Listener {
+        final List<Long> latencies = new ArrayList<>();
+        final List<Long> firstChunks = new ArrayList<>();
+        int failures;
+
+        @Override
+        public void output(String projectPath, String text) {
+            // 压测只统计耗时，不显示模型输出
+        }
+
+        @Override
+        public synchronized void callFinished(String projectPath, boolean success, long latencyMs, long firstChunkMs) {
+            if (!success) {
+                failures++;
+                return;
+            }
+            latencies.add(latencyMs);
+            if (firstChunkMs >= 0) firstChunks.add(firstChunkMs);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MockLLMServer.Options mockOptions = new MockLLMServer.Options();
+        mockOptions.port = 0;
+        String url = null;
+        File dir = null;
+        int projectCount = 40;
+        int concurrency = 4;
+        boolean autoTune = false;
+        int batch = 1;
+        String stopAfterJson = null;
+        for (int i = 0; i < args.length; ) {
+            String name = args[i];
+            switch (name) {
+                case "--url": url = MockLLMServer.Options.value(args, i); break;
+                case "--dir": dir = new File(MockLLMServer.Options.value(args, i)); break;
+                case "--projects": projectCount = Integer.parseInt(MockLLMServer.Options.value(args, i)); break;
+                case "--concurrency": concurrency = Integer.parseInt(MockLLMServer.Options.value(args, i)); break;
+                case "--auto-tune": autoTune = Boolean.parseBoolean(MockLLMServer.Options.value(args, i)); break;
+                case "--batch": batch = Integer.parseInt(MockLLMServer.Options.value(args, i)); break;
+                case "--stop-after-json": stopAfterJson = MockLLMServer.Options.value(args, i); break;
+                default:
+                    int next = mockOptions.parse(args, i);
+                    if (next < 0) {
+                        System.err.println("未知参数: " + name);
+                        System.exit(1);
+                    }
+                    i = next;
+                    continue;
+            }
+            i += 2;
+        }
+
+        // 压测使用独立的内存数据库，不会创建或修改用户的历史记录、扫描索引和响应缓存表
+        HistoryManager.useDatabase("jdbc:h2:mem:analysis-load-test;DB_CLOSE_DELAY=-1");
+
+        MockLLMServer mock = null;
+        List<String> urls = new ArrayList<>();
+        if (url == null) {
+            mock = new MockLLMServer(mockOptions);
+            mock.start();
+            urls.add(mock.getUrl());
+        } else {
+            for (String u : url.split(",")) if (!u.trim().isEmpty()) urls.add(u.trim());
+        }
+
+        Path generated = null;
+        List<String> projects = new ArrayList<>();
+        if (dir != null) {
+            for (File f : ProjectScanner.scanProjects(dir)) projects.add(f.getAbsolutePath());
+        } else {
+            generated = generateProjects(projectCount);
+            for (int i = 0; i < projectCount; i++) projects.add(generated.resolve("project-" + i).toString());
+        }
+
+        ConfigManager cfg = new ConfigManager();
+        // 只在内存中修改，不保存到配置文件
+        cfg.set("cache.maxMegabytes", "0");
+        if (stopAfterJson != null) cfg.set("analysis.stopAfterJson", stopAfterJson);
+        String model = cfg.getModel();
+        String apiKey = cfg.get("api.key", System.getenv().getOrDefault("OPENAI_API_KEY", "sk-mock"));
+        LLMClient client = new LLMClient(urls, apiKey, model, ChatOptions.fromConfig(cfg), cfg);
+        AtomicInteger saved = new AtomicInteger();
+        HistoryManager hm = new HistoryManager() {
+            @Override
+            public void save(AnalysisResult result) {
+                saved.incrementAndGet();
+            }
+        };
+        ContextPacker packer = new ContextPacker(TokenEstimator.fromConfig(cfg));
+        int tokenBudget = cfg.getPromptTokenBudget();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(autoTune ? 1 : concurrency, concurrency, autoTune);
+        Recorder recorder = new Recorder();
+        AnalysisPipeline pipeline = new AnalysisPipeline(client, hm,
+                d -> Main.buildPromptForProject(d, model, packer, tokenBudget),
+                false, cfg.getAnalysisQueueCapacity(), limiter, recorder);
+        pipeline.setStopAfterJson(cfg.isAnalysisStopAfterJson());
+        if (batch > 1) {
+            pipeline.setBatching(cfg.getAnalysisBatchSmallProjectTokens(), tokenBudget, batch,
+                    prompts -> Main.buildBatchPrompt(prompts, packer.getEstimator(), tokenBudget));
+        }
+
+        System.out.printf("分析 %d 个项目，端点 %s，并发 %d%s%s%n", projects.size(), urls, concurrency,
+                autoTune ? "（自动调节）" : "", batch > 1 ? "，合并上限 " + batch : "");
+        long start = System.nanoTime();
+        pipeline.run(projects);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("耗时 %.2f 秒，保存 %d/%d 个项目，%.2f 项目/秒%n", seconds, saved.get(), projects.size(), saved.get() / seconds);
+        System.out.printf("模型调用 %d 次成功，%d 次失败，%.2f 次/秒%n",
+                recorder.latencies.size(), recorder.failures, recorder.latencies.size() / seconds);
+        System.out.println("调用耗时 " + percentiles(recorder.latencies));
+        System.out.println("首个片段 " + percentiles(recorder.firstChunks));
+        if (autoTune) System.out.println("最终并发上限 " + limiter.getLimit());
+        if (mock != null) {
+            System.out.printf("模拟服务收到 %d 个请求，注入 %d 个错误%n", mock.getRequestCount(), mock.getErrorCount());
+            mock.stop();
+        }
+        if (generated != null) deleteRecursively(generated);
+        System.exit(0);
+    }
+
+    private static String percentiles(List<Long> values) {
+        if (values.isEmpty()) return "-";
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return String.format("p50 %d ms, p90 %d ms, p99 %d ms, max %d ms",
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted.get(sorted.size() - 1));
+    }
+
+    private static long percentile(List<Long> sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * 生成大小不一的临时项目：多数只有 README 和依赖文件，每 4 个中有一个带较大的源文件
+     */
+    private static Path generateProjects(int count) throws IOException {
+        Path root = Files.createTempDirectory("notebookllm-load");
+        for (int i = 0; i < count; i++) {
+            Path project = Files.createDirectories(root.resolve("project-" + i));
+            write(project.resolve("README.md"), "# project-" + i + "\n\n一个用于压测的示例项目。\n");
+            write(project.resolve("requirements.txt"), "requests==2.31.0\nflask==3.0.0\n");
+            if (i % 4 == 0) {
+                StringBuilder sb = new StringBuilder();
+                for (int line = 0; line < 400; line++) {
+                    sb.append("def handler_").append(line).append("(request):\n    return {'status': 'ok', 'id': ")
+                      .append(line).append("}\n\n");
+                }
+                write(project.resolve("main.py"), sb.toString());
+            }
+        }
+        return root;
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,641 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 批量分析流水线：项目列表 → 构建提示词 → 调用模型 → 解析结果 → 保存历史，
+ * 每个阶段在独立线程中运行，阶段之间通过有界队列衔接。
+ * 调用模型期间，下一个项目的提示词构建（文件读取、指纹查询）和上一个项目的解析、入库同时进行，
+ * 队列满时上游阶段阻塞，避免提前读入过多项目。
+ * 模型调用阶段可以有多个线程，同时进行的调用数量由 {@link ConcurrencyLimiter} 控制；
+ * 保存阶段只有一个线程，每个项目的结果只保存一次。
+ * 启用合并后，提示词很短的小项目在进入模型调用阶段前按 token 预算合并为一个请求，
+ * 模型返回的 JSON 数组按项目路径拆分后分别解析、保存。
+ */
+public class AnalysisPipeline {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPipeline.class);
+
+    /**
+     * 输出回调，可能在任意阶段线程中调用
+     */
+    public interface Listener {
+        void output(String projectPath, String text);
+
+        /**
+         * 一次模型调用结束，latencyMs 为总耗时，firstChunkMs 为首个片段的耗时（没有流式片段时为 -1）。
+         * 合并请求的 projectPath 为批次名称
+         */
+        default void callFinished(String projectPath, boolean success, long latencyMs, long firstChunkMs) {
+        }
+
+        /**
+         * 开始接收一个模型响应；流式失败后改用非流式请求时会再次调用，之前收到的片段应当丢弃
+         */
+        default void resultStarted(String projectPath) {
+        }
+
+        /**
+         * 模型响应内容的片段（不含流水线自身的提示信息），可用于增量解析
+         */
+        default void resultChunk(String projectPath, String chunk) {
+        }
+    }
+
+    /**
+     * 提示词构建，由调用方提供
+     */
+    public interface PromptBuilder {
+        ProjectPrompt build(File projectDir) throws Exception;
+    }
+
+    /**
+     * 把多个小项目的提示词合并为一个，由调用方提供
+     */
+    public interface BatchPromptBuilder {
+        ProjectPrompt build(List<ProjectPrompt> prompts) throws Exception;
+    }
+
+    /**
+     * 在阶段之间传递的单个项目，或合并请求的多个项目
+     */
+    private static class Job {
+        final String path;
+        ProjectPrompt prompt;
+        String response;
+        // 响应是合法 JSON 时的格式化结果
+        String pretty;
+        // 合并请求包含的项目，单个项目时为 null
+        List<Job> members;
+
+        Job(String path) {
+            this.path = path;
+        }
+    }
+
+    // 结束标记，沿流水线逐级传递
+    private static final Job END = new Job(null);
+
+    /**
+     * 阶段处理逻辑，返回 false 表示该项目不再交给下游（已复用历史结果或处理失败）
+     */
+    private interface StageFunction {
+        boolean apply(Job job) throws Exception;
+    }
+
+    private final LLMClient client;
+    private final HistoryManager hm;
+    private final PromptBuilder promptBuilder;
+    private final boolean skipUnchanged;
+    private final Listener listener;
+    private final ConcurrencyLimiter limiter;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final BlockingQueue<Job> pending;
+    // 启用合并时提示词先进入该队列，由合并阶段转交给 prompts
+    private final BlockingQueue<Job> built;
+    private final BlockingQueue<Job> prompts;
+    private final BlockingQueue<Job> responses;
+    private final BlockingQueue<Job> results;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean cancelled;
+    // 阶段线程意外终止（例如 Error）的原因，run() 结束时抛出
+    private volatile Throwable failure;
+
+    private int batchSmallTokens;
+    private int batchTokenBudget;
+    private int batchMaxProjects = 1;
+    private BatchPromptBuilder batchPromptBuilder;
+    private int batchCount;
+    private boolean stopAfterJson = true;
+
+    public AnalysisPipeline(LLMClient client, HistoryManager hm, PromptBuilder promptBuilder,
+                            boolean skipUnchanged, int queueCapacity, ConcurrencyLimiter limiter, Listener listener) {
+        this.client = client;
+        this.hm = hm;
+        this.promptBuilder = promptBuilder;
+        this.skipUnchanged = skipUnchanged;
+        this.listener = listener;
+        this.limiter = limiter;
+        client.setNoticeListener(text -> listener.output(null, text));
+        int capacity = Math.max(1, queueCapacity);
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.built = new ArrayBlockingQueue<>(capacity);
+        // 保证每个模型调用线程都有待处理的提示词
+        this.prompts = new ArrayBlockingQueue<>(Math.max(capacity, limiter.getMaxLimit()));
+        this.responses = new ArrayBlockingQueue<>(capacity);
+        this.results = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 启用小项目合并：项目内容估算不超过 smallProjectTokens 的项目，按 tokenBudget 和 maxProjects 合并为一个请求
+     */
+    public void setBatching(int smallProjectTokens, int tokenBudget, int maxProjects, BatchPromptBuilder builder) {
+        this.batchSmallTokens = smallProjectTokens;
+        this.batchTokenBudget = tokenBudget;
+        this.batchMaxProjects = maxProjects;
+        this.batchPromptBuilder = builder;
+    }
+
+    /**
+     * 流式响应中的 JSON 结果完整后是否立即断开连接，默认开启
+     */
+    public void setStopAfterJson(boolean stopAfterJson) {
+        this.stopAfterJson = stopAfterJson;
+    }
+
+    /**
+     * 依次送入项目并等待所有阶段处理完毕；某个阶段线程意外终止时停止流水线并抛出 IllegalStateException
+     */
+    public void run(List<String> projects) throws InterruptedException {
+        if (batchMaxProjects > 1) {
+            startStage("analysis-prompt", 1, pending, built, this::buildPrompt);
+            Thread t = new Thread(this::runBatcher, "analysis-batch");
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        } else {
+            startStage("analysis-prompt", 1, pending, prompts, this::buildPrompt);
+        }
+        startStage("analysis-llm", limiter.getMaxLimit(), prompts, responses, this::callModel);
+        startStage("analysis-post", 1, responses, results, this::postProcess);
+        startStage("analysis-save", 1, results, null, this::persist);
+        try {
+            for (String p : projects) {
+                if (!submit(new Job(p))) break;
+            }
+            submit(END);
+            for (Thread t : threads) {
+                t.join();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("分析流水线异常终止：" + failure, failure);
+            }
+            String endpoints = client.describeEndpoints();
+            logger.info("模型服务端点统计:\n{}", endpoints);
+            if (client.getEndpointCount() > 1) {
+                // 多个端点时显示各端点的负载情况
+                listener.output(null, "\n模型服务端点统计：\n" + endpoints);
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * 停止所有阶段，正在进行的项目不再保存
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * 各阶段输入队列中等待处理的项目数
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("待构建提示词", pending.size());
+        depths.put("待合并", built.size());
+        depths.put("待调用模型", prompts.size());
+        depths.put("待解析", responses.size());
+        depths.put("待保存", results.size());
+        depths.put("调用中", limiter.getInFlight());
+        return depths;
+    }
+
+    /**
+     * 送入一个项目，流水线已停止时返回 false；不会在已停止的流水线上一直等待队列空位
+     */
+    private boolean submit(Job job) throws InterruptedException {
+        while (!pending.offer(job, 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) return false;
+        }
+        return true;
+    }
+
+    private void startStage(String name, int workers, BlockingQueue<Job> in, BlockingQueue<Job> out, StageFunction fn) {
+        AtomicInteger alive = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(() -> runStage(name, in, out, fn, alive), workers == 1 ? name : name + "-" + i);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+    }
+
+    private void runStage(String name, BlockingQueue<Job> in, BlockingQueue<Job> out, StageFunction fn, AtomicInteger alive) {
+        try {
+            while (!cancelled) {
+                Job job = in.take();
+                if (job == END) {
+                    // 放回结束标记，让同一阶段的其他线程也能退出
+                    in.put(END);
+                    break;
+                }
+                boolean forward;
+                try {
+                    forward = fn.apply(job);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception ex) {
+                    forward = false;
+                    listener.output(job.path, "分析失败：" + ex.getMessage() + "\n");
+                    logger.error("项目 {} 在阶段 {} 处理失败", job.path, name, ex);
+                }
+                if (forward && out != null) {
+                    out.put(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.debug("流水线阶段 {} 已中断", name);
+        } catch (Throwable t) {
+            // 线程意外终止时停止整个流水线，上游不会再阻塞在无人消费的队列上
+            logger.error("流水线阶段 {} 异常终止", name, t);
+            failure = t;
+            cancel();
+        } finally {
+            // 同一阶段的最后一个线程退出时通知下游结束
+            if (alive.decrementAndGet() == 0 && out != null) {
+                try {
+                    out.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并阶段：小项目暂存到当前批次，批次达到 token 预算或数量上限时作为一个请求交给模型调用阶段，
+     * 其他项目直接转交；收到结束标记时提交最后一个批次。
+     */
+    private void runBatcher() {
+        List<Job> batch = new ArrayList<>();
+        int batchTokens = 0;
+        try {
+            while (!cancelled) {
+                Job job = built.take();
+                if (job == END) {
+                    break;
+                }
+                // 只比较项目内容，固定的说明和输出要求在合并请求中只出现一次
+                int tokens = job.prompt.contentTokens();
+                int overhead = job.prompt.totalTokens() - tokens;
+                if (job.prompt.body == null || tokens > batchSmallTokens) {
+                    prompts.put(job);
+                    continue;
+                }
+                if (!batch.isEmpty() && (overhead + batchTokens + tokens > batchTokenBudget || batch.size() >= batchMaxProjects)) {
+                    flushBatch(batch);
+                    batchTokens = 0;
+                }
+                batch.add(job);
+                batchTokens += tokens;
+            }
+            if (!cancelled) {
+                flushBatch(batch);
+                prompts.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.debug("流水线阶段 analysis-batch 已中断");
+        } catch (Throwable t) {
+            logger.error("流水线阶段 analysis-batch 异常终止", t);
+            failure = t;
+            cancel();
+        }
+    }
+
+    private void flushBatch(List<Job> batch) throws InterruptedException {
+        if (batch.size() == 1) {
+            prompts.put(batch.get(0));
+        } else if (batch.size() > 1) {
+            Job job = new Job("批量" + (++batchCount));
+            job.members = new ArrayList<>(batch);
+            List<ProjectPrompt> memberPrompts = new ArrayList<>();
+            for (Job member : batch) memberPrompts.add(member.prompt);
+            try {
+                job.prompt = batchPromptBuilder.build(memberPrompts);
+                prompts.put(job);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception ex) {
+                // 合并失败时按单个项目分析
+                logger.warn("合并小项目提示词失败，改为逐个分析", ex);
+                for (Job member : batch) prompts.put(member);
+            }
+        }
+        batch.clear();
+    }
+
+    private boolean buildPrompt(Job job) throws Exception {
+        job.prompt = promptBuilder.build(new File(job.path));
+        logger.debug("为项目 {} 构建提示完成，提示长度: {}", job.path, job.prompt.text.length());
+
+        // 发送给模型的内容与上次分析完全一致时直接复用历史结果
+        if (skipUnchanged) {
+            AnalysisResult previous = hm.findByFingerprint(job.path, job.prompt.fingerprint);
+            if (previous != null) {
+                listener.output(job.path, "\n项目内容未变化：" + job.path + "，复用 " + previous.analyzedAt
+                        + " 的分析结果（ID " + previous.id + "）：\n"
+                        + previous.projectName + " - " + previous.projectDescription + "\n\n");
+                logger.info("项目 {} 内容指纹未变化，复用历史记录 {}", job.path, previous.id);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean callModel(Job job) throws InterruptedException {
+        if (job.members != null) {
+            return callModelBatch(job);
+        }
+        job.response = complete(job.path, job.prompt, "分析：" + job.path + "\n");
+        return job.response != null;
+    }
+
+    /**
+     * 合并请求：响应按项目路径拆分给各个项目，响应中缺少的项目单独再分析一次
+     */
+    private boolean callModelBatch(Job job) throws InterruptedException {
+        StringBuilder names = new StringBuilder();
+        for (Job member : job.members) names.append("\n  ").append(member.path);
+        String response = complete(job.path, job.prompt, "合并分析 " + job.members.size() + " 个小项目：" + names + "\n");
+        Map<Job, String> parts = response != null ? splitBatchResponse(response, job.members) : new HashMap<>();
+        logger.info("合并请求 {} 拆分出 {}/{} 个项目的结果", job.path, parts.size(), job.members.size());
+        boolean any = false;
+        for (Job member : job.members) {
+            member.response = parts.get(member);
+            if (member.response == null) {
+                listener.output(member.path, "\n合并结果中没有项目 " + member.path + "，单独分析\n");
+                member.response = complete(member.path, member.prompt, "分析：" + member.path + "\n");
+            }
+            any |= member.response != null;
+        }
+        return any;
+    }
+
+    /**
+     * 把合并请求的响应拆分到各个项目：优先按 project_path 匹配，其次按目录名匹配，
+     * 元素数量与项目数量一致时剩余的元素按顺序对应
+     */
+    private Map<Job, String> splitBatchResponse(String response, List<Job> members) {
+        Map<Job, String> parts = new HashMap<>();
+        List<JsonNode> elements = new ArrayList<>();
+        try {
+            JsonNode root = mapper.readTree(clean(response));
+            if (root.isArray()) {
+                root.forEach(e -> { if (e.isObject()) elements.add(e); });
+            } else if (root.isObject()) {
+                // 使用 json_object 输出格式时，模型会把数组包在对象的某个字段中，或者以项目路径为键
+                JsonNode array = null;
+                for (JsonNode value : root) {
+                    if (value.isArray()) {
+                        array = value;
+                        break;
+                    }
+                }
+                if (array != null) {
+                    array.forEach(e -> { if (e.isObject()) elements.add(e); });
+                } else {
+                    Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+                    while (fields.hasNext()) {
+                        Map.Entry<String, JsonNode> e = fields.next();
+                        if (e.getValue().isObject()) {
+                            ObjectNode element = (ObjectNode) e.getValue();
+                            if (!element.has("project_path")) element.put("project_path", e.getKey());
+                            elements.add(element);
+                        }
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.warn("合并请求的响应不是有效 JSON，无法拆分", ex);
+            return parts;
+        }
+
+        List<JsonNode> unmatched = new ArrayList<>();
+        for (JsonNode element : elements) {
+            Job member = matchMember(element.path("project_path").asText(""), members, parts);
+            if (member != null) {
+                parts.put(member, toJson(element));
+            } else {
+                unmatched.add(element);
+            }
+        }
+        if (elements.size() == members.size()) {
+            Iterator<JsonNode> rest = unmatched.iterator();
+            for (Job member : members) {
+                if (!parts.containsKey(member) && rest.hasNext()) {
+                    parts.put(member, toJson(rest.next()));
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static Job matchMember(String path, List<Job> members, Map<Job, String> matched) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        for (Job member : members) {
+            if (!matched.containsKey(member) && path.equals(member.path)) return member;
+        }
+        String name = new File(path).getName();
+        Job found = null;
+        for (Job member : members) {
+            if (!matched.containsKey(member) && name.equals(new File(member.path).getName())) {
+                // 目录名重复时无法确定对应关系
+                if (found != null) return null;
+                found = member;
+            }
+        }
+        return found;
+    }
+
+    private String toJson(JsonNode node) {
+        try {
+            return mapper.writeValueAsString(node);
+        } catch (Exception e) {
+            return node.toString();
+        }
+    }
+
+    /**
+     * 调用模型并返回完整响应，失败时输出原因并返回 null
+     */
+    private String complete(String p, ProjectPrompt prompt, String intro) throws InterruptedException {
+        limiter.acquire();
+        // 监听器、模型调用或后续处理抛出意外异常时也要归还名额，否则并发为 1 时整个批量分析会停住
+        boolean released = false;
+        try {
+            listener.output(p, intro);
+            listener.output(p, "提示词 token 估算：" + prompt.describeTokens() + "\n");
+            logger.info("开始分析项目: {}，并发上限: {}，流水线队列: {}", p, limiter.getLimit(), getQueueDepths());
+
+            long start = System.nanoTime();
+            long[] firstChunkNanos = {-1};
+            boolean overloaded = false;
+            boolean cached = false;
+            // 单次流式调用：边显示边拼接最终结果，只有流式失败时才回退到非流式请求
+            String toSave = null;
+            try {
+                // 过滤掉 <think> 块和代码块标记，JSON 结果完整后不再等待模型生成剩余内容
+                listener.resultStarted(p);
+                CompletionResult streamed = client.analyzeStream(prompt.text, chunk -> {
+                    if (firstChunkNanos[0] < 0) firstChunkNanos[0] = System.nanoTime();
+                    listener.output(p, chunk);
+                    listener.resultChunk(p, chunk);
+                }, stopAfterJson ? new JsonResultFilter() : null);
+                logger.debug("项目 {} 流式分析完成: {}", p, streamed);
+                overloaded = streamed.throttled;
+                cached = streamed.cached;
+                if (cached) {
+                    listener.output(p, "\n（使用缓存的模型响应）\n");
+                }
+                if (streamed.content.isEmpty()) {
+                    listener.output(p, "\n流式响应为空，改用非流式请求\n");
+                    logger.warn("项目 {} 流式响应为空", p);
+                } else {
+                    if (streamed.stoppedEarly) {
+                        logger.info("项目 {} 已收到完整的 JSON 结果，提前结束流式响应", p);
+                    } else if (!streamed.isComplete()) {
+                        logger.warn("项目 {} 流式响应未收到完成信号", p);
+                    } else if (streamed.isTruncated()) {
+                        listener.output(p, "\n（输出达到长度上限，结果可能被截断）\n");
+                        logger.warn("项目 {} 流式响应因长度上限被截断", p);
+                    }
+                    if (streamed.hasUsage()) {
+                        logger.info("项目 {} token 用量 - prompt: {}, completion: {}, total: {}",
+                                p, streamed.promptTokens, streamed.completionTokens, streamed.totalTokens);
+                    }
+                    toSave = streamed.content;
+                }
+            } catch (Exception ex) {
+                overloaded = isOverloaded(ex);
+                listener.output(p, "\n流式获取失败：" + ex.getMessage() + "，改用非流式请求\n");
+                logger.error("项目 {} 流式分析失败", p, ex);
+            }
+
+            if (toSave == null) {
+                try {
+                    toSave = client.analyze(prompt.text);
+                    logger.debug("项目 {} 非流式分析完成", p);
+                    JsonResultFilter filter = new JsonResultFilter();
+                    listener.resultStarted(p);
+                    listener.resultChunk(p, filter.accept(toSave) + filter.finish());
+                } catch (Exception ex) {
+                    released = true;
+                    limiter.release(-1, overloaded || isOverloaded(ex));
+                    listener.callFinished(p, false, (System.nanoTime() - start) / 1_000_000, -1);
+                    listener.output(p, "获取最终响应失败：" + ex.getMessage() + "\n");
+                    logger.error("项目 {} 非流式分析失败", p, ex);
+                    return null;
+                }
+            }
+            long finished = System.nanoTime();
+            long end = firstChunkNanos[0] >= 0 ? firstChunkNanos[0] : finished;
+            // 缓存命中的耗时不代表模型服务的延迟，不参与并发调节
+            released = true;
+            limiter.release(cached ? -1 : (end - start) / 1_000_000, overloaded);
+            listener.callFinished(p, true, (finished - start) / 1_000_000,
+                    firstChunkNanos[0] >= 0 ? (firstChunkNanos[0] - start) / 1_000_000 : -1);
+            logger.debug("项目 {} 响应内容长度: {}", p, toSave.length());
+            return toSave;
+        } finally {
+            if (!released) {
+                limiter.release(-1, false);
+            }
+        }
+    }
+
+    private static boolean isOverloaded(Exception ex) {
+        return ex instanceof LLMHttpException && ((LLMHttpException) ex).isOverloaded();
+    }
+
+    /**
+     * 去除 <think> 块和代码块标记
+     */
+    private static String clean(String response) {
+        return response
+                .replaceAll("<think>[\\s\\S]*?</think>", "")   // 去掉 <think>
+                .replaceAll("```[a-zA-Z0-9]*", "")
+                .replaceAll("```", "")
+                .trim();
+    }
+
+    private boolean postProcess(Job job) throws InterruptedException {
+        if (job.members != null) {
+            forEachMember(job, "analysis-post", this::postProcess);
+            return true;
+        }
+        //去除对象中的<think>标签
+        String toSave = clean(job.response);
+        job.response = toSave;
+
+        // 尝试解析为 JSON，如果成功则美化，否则按原样保存
+        try {
+            Object json = mapper.readValue(toSave, Object.class);
+            job.pretty = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
+            listener.output(job.path, "\n最终结果（已解析为 JSON）：\n" + job.pretty + "\n\n");
+            logger.debug("项目 {} 响应为有效JSON格式", job.path);
+        } catch (Exception ex) {
+            // 不是合法 JSON，保存原始文本
+            listener.output(job.path, "\n最终结果（非 JSON 文本）：\n" + toSave + "\n\n");
+            logger.debug("项目 {} 响应为非JSON格式", job.path, ex);
+        }
+        return true;
+    }
+
+    /**
+     * 对合并请求中有结果的每个项目分别处理，一个项目失败时按该项目报告并继续处理其余项目
+     */
+    private void forEachMember(Job job, String stage, StageFunction fn) throws InterruptedException {
+        for (Job member : job.members) {
+            if (member.response == null) continue;
+            try {
+                fn.apply(member);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception ex) {
+                listener.output(member.path, "分析失败：" + ex.getMessage() + "\n");
+                logger.error("项目 {} 在阶段 {} 处理失败", member.path, stage, ex);
+            }
+        }
+    }
+
+    private boolean persist(Job job) throws InterruptedException {
+        if (job.members != null) {
+            forEachMember(job, "analysis-save", this::persist);
+            return true;
+        }
+        // 使用正确的构造函数保存结果，确保项目名称和描述能从分析结果中提取
+        AnalysisResult ar = new AnalysisResult(0, job.path, job.response, java.time.LocalDateTime.now());
+        ar.fingerprint = job.prompt.fingerprint;
+        hm.save(ar);
+        logger.info("项目 {} 分析结果已保存到数据库", job.path);
+        return true;
+    }
+}
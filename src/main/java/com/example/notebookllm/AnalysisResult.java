@@ -1,14 +1,20 @@
 package com.example.notebookllm;
 
 import java.time.LocalDateTime;
+import java.util.function.Supplier;
 
 public class AnalysisResult {
     public int id;
     public String projectPath;
     public String projectName;
     public String projectDescription;
-    public String result;
+    // 分析结果原文，通过 getResult() 读取；按需加载的记录在第一次读取之前为 null
+    private String result;
     public LocalDateTime analyzedAt;
+    // 分析时项目内容的指纹，见 ProjectFingerprint
+    public String fingerprint;
+    // 按需读取分析结果，读取一次后清空
+    private Supplier<String> resultLoader;
 
     public AnalysisResult(int id, String projectPath, String result, LocalDateTime analyzedAt) {
         this.id = id;
@@ -30,10 +36,29 @@ public class AnalysisResult {
         this.analyzedAt = analyzedAt;
     }
     
+    /**
+     * 只查询了摘要列的记录在第一次需要分析结果时再读取
+     */
+    void setResultLoader(Supplier<String> resultLoader) {
+        this.resultLoader = resultLoader;
+    }
+
+    /**
+     * 分析结果原文，按需加载的记录在第一次调用时从数据库读取
+     */
+    public String getResult() {
+        if (result == null && resultLoader != null) {
+            result = resultLoader.get();
+            resultLoader = null;
+        }
+        return result;
+    }
+
     /**
      * 从分析结果中提取项目名称和描述
      */
     public void extractProjectInfoFromResult() {
+        String result = getResult();
         if (result == null || result.isEmpty()) {
             this.projectName = "未知项目";
             this.projectDescription = "暂无描述";
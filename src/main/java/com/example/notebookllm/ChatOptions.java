@@ -0,0 +1,38 @@
+package com.example.notebookllm;
+
+/**
+ * Chat Completions 请求的可选参数，字段为 null 时不写入请求体，由服务端使用默认值
+ */
+public class ChatOptions {
+    public Double temperature;
+    public Integer maxTokens;
+    // 例如 json_object，要求模型只输出 JSON
+    public String responseFormat;
+    // 流式请求时通过 stream_options 要求服务端在最后返回 usage
+    public boolean streamUsage = true;
+
+    /**
+     * 从配置读取：api.temperature、api.maxTokens、api.responseFormat、api.streamUsage
+     */
+    public static ChatOptions fromConfig(ConfigManager cfg) {
+        ChatOptions options = new ChatOptions();
+        String temperature = cfg.get("api.temperature", "").trim();
+        if (!temperature.isEmpty()) {
+            try {
+                options.temperature = Double.parseDouble(temperature);
+            } catch (NumberFormatException e) {
+                // 无效值忽略，使用服务端默认值
+            }
+        }
+        int maxTokens = cfg.getInt("api.maxTokens", -1);
+        if (maxTokens > 0) {
+            options.maxTokens = maxTokens;
+        }
+        String responseFormat = cfg.get("api.responseFormat", "").trim();
+        if (!responseFormat.isEmpty()) {
+            options.responseFormat = responseFormat;
+        }
+        options.streamUsage = Boolean.parseBoolean(cfg.get("api.streamUsage", "true").trim());
+        return options;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Chat Completions 请求体，用 JsonGenerator 直接写入 OkHttp 的输出流，
+ * 提示词不再经过字符串拼接和转义产生额外的副本。
+ * Content-Length 通过一次只计数不保存的序列化得到，兼容不支持分块请求体的服务端。
+ */
+public class ChatRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final String model;
+    private final String prompt;
+    private final boolean stream;
+    private final ChatOptions options;
+    private long contentLength = -1;
+
+    public ChatRequestBody(String model, String prompt, boolean stream, ChatOptions options) {
+        this.model = model;
+        this.prompt = prompt;
+        this.stream = stream;
+        this.options = options == null ? new ChatOptions() : options;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (contentLength < 0) {
+            CountingOutputStream counter = new CountingOutputStream();
+            write(counter);
+            contentLength = counter.count;
+        }
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        write(sink.outputStream());
+    }
+
+    private void write(OutputStream out) throws IOException {
+        try (JsonGenerator g = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeStringField("model", model);
+            g.writeArrayFieldStart("messages");
+            g.writeStartObject();
+            g.writeStringField("role", "user");
+            g.writeStringField("content", prompt);
+            g.writeEndObject();
+            g.writeEndArray();
+            if (options.temperature != null) {
+                g.writeNumberField("temperature", options.temperature);
+            }
+            if (options.maxTokens != null) {
+                g.writeNumberField("max_tokens", options.maxTokens);
+            }
+            if (options.responseFormat != null) {
+                g.writeObjectFieldStart("response_format");
+                g.writeStringField("type", options.responseFormat);
+                g.writeEndObject();
+            }
+            if (stream) {
+                g.writeBooleanField("stream", true);
+                if (options.streamUsage) {
+                    g.writeObjectFieldStart("stream_options");
+                    g.writeBooleanField("include_usage", true);
+                    g.writeEndObject();
+                }
+            }
+            g.writeEndObject();
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.notebookllm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import okio.BufferedSource;
+import okio.ByteString;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chat Completions 流式响应（SSE）解码器。
+ * 直接在 BufferedSource 的字节上按行切分事件，data 负载复制到可复用的字节数组，
+ * 再用 Jackson 流式 JsonParser 只提取 choices[0] 的 content、finish_reason 和 usage，
+ * 不为每个事件创建行字符串和 JsonNode 树。
+ */
+public class ChatStreamDecoder {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ChatStreamDecoder.class);
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final ByteString DATA = ByteString.encodeUtf8("data:");
+    private static final ByteString DONE = ByteString.encodeUtf8("[DONE]");
+
+    private final BufferedSource source;
+    private final CompletionResult result;
+    // 当前事件的 data 负载，多行 data 以换行连接
+    private byte[] data = new byte[1024];
+    private int dataLength;
+    private int eventCount;
+
+    public ChatStreamDecoder(BufferedSource source, CompletionResult result) {
+        this.source = source;
+        this.result = result;
+    }
+
+    /**
+     * 返回下一个非空内容片段，流结束（收到 [DONE] 或连接关闭）时返回 null。
+     * finish_reason、usage 和 [DONE] 标记记录到 result 中。
+     */
+    public String nextContent() throws IOException {
+        while (readEvent()) {
+            eventCount++;
+            if (isDone()) {
+                logger.debug("收到流结束标记[DONE]");
+                result.doneReceived = true;
+                return null;
+            }
+            try {
+                String content = parseChunk();
+                if (content != null && !content.isEmpty()) {
+                    return content;
+                }
+            } catch (IOException ex) {
+                // JSON 格式错误只跳过当前事件
+                logger.warn("解析流数据块时发生异常: {}", new String(data, 0, dataLength, StandardCharsets.UTF_8), ex);
+            }
+        }
+        return null;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * 读取一个事件（以空行结束），只保留 data 字段，忽略注释、event、id 等其他字段
+     */
+    private boolean readEvent() throws IOException {
+        dataLength = 0;
+        boolean hasData = false;
+        while (true) {
+            long newline = source.indexOf((byte) '\n');
+            long lineLength;
+            if (newline == -1) {
+                if (source.exhausted()) {
+                    // 连接关闭时最后一个事件可能没有结尾空行
+                    return hasData;
+                }
+                lineLength = source.getBuffer().size();
+            } else {
+                lineLength = newline;
+            }
+            long contentLength = lineLength;
+            if (contentLength > 0 && source.getBuffer().getByte(contentLength - 1) == '\r') {
+                contentLength--;
+            }
+            if (contentLength == 0) {
+                source.skip(newline == -1 ? lineLength : lineLength + 1);
+                if (hasData) return true;
+                continue;
+            }
+            if (source.rangeEquals(0, DATA)) {
+                long offset = DATA.size();
+                if (offset < contentLength && source.getBuffer().getByte(offset) == ' ') offset++;
+                source.skip(offset);
+                if (hasData) appendData((byte) '\n');
+                readData((int) (contentLength - offset));
+                source.skip(lineLength - contentLength + (newline == -1 ? 0 : 1));
+                hasData = true;
+            } else {
+                source.skip(newline == -1 ? lineLength : lineLength + 1);
+            }
+        }
+    }
+
+    private void readData(int length) throws IOException {
+        ensureCapacity(dataLength + length);
+        int end = dataLength + length;
+        while (dataLength < end) {
+            int n = source.read(data, dataLength, end - dataLength);
+            if (n == -1) throw new EOFException();
+            dataLength += n;
+        }
+    }
+
+    private void appendData(byte b) {
+        ensureCapacity(dataLength + 1);
+        data[dataLength++] = b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private boolean isDone() {
+        int start = 0, end = dataLength;
+        while (start < end && data[start] == ' ') start++;
+        while (end > start && (data[end - 1] == ' ' || data[end - 1] == '\r')) end--;
+        if (end - start != DONE.size()) return false;
+        for (int i = 0; i < DONE.size(); i++) {
+            if (data[start + i] != DONE.getByte(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 解析一个数据块，返回 choices[0] 中的内容片段
+     */
+    private String parseChunk() throws IOException {
+        String content = null;
+        try (JsonParser p = FACTORY.createParser(data, 0, dataLength)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    if (p.nextToken() == JsonToken.START_OBJECT) {
+                        content = parseChoice(p);
+                        // 只关心第一个 choice
+                        JsonToken t;
+                        while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                            p.skipChildren();
+                        }
+                    }
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    // 开启 include_usage 后，最后一个数据块携带 usage 且 choices 为空
+                    parseUsage(p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return content;
+    }
+
+    private String parseChoice(JsonParser p) throws IOException {
+        String content = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if (("delta".equals(field) || "message".equals(field)) && value == JsonToken.START_OBJECT) {
+                // Chat Completions v1 stream uses delta.content
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String inner = p.getCurrentName();
+                    JsonToken innerValue = p.nextToken();
+                    if ("content".equals(inner) && innerValue == JsonToken.VALUE_STRING) {
+                        content = p.getText();
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+                if (content == null) content = p.getText();
+            } else if ("finish_reason".equals(field) && value == JsonToken.VALUE_STRING) {
+                result.finishReason = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private void parseUsage(JsonParser p) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if (value == JsonToken.VALUE_NUMBER_INT) {
+                if ("prompt_tokens".equals(field)) result.promptTokens = p.getIntValue();
+                else if ("completion_tokens".equals(field)) result.completionTokens = p.getIntValue();
+                else if ("total_tokens".equals(field)) result.totalTokens = p.getIntValue();
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.notebookllm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 模型服务端点的熔断器，同一端点的所有调用共用一个实例。
+ * 连续失败达到阈值后熔断：熔断期间所有调用在 {@link #acquire()} 中等待，批量分析随之暂停；
+ * 熔断时间到后只放行一个试探调用，成功则恢复，失败则再次熔断并延长等待时间。
+ */
+public class CircuitBreaker {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new HashMap<>();
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long baseOpenMs;
+    private final long maxOpenMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMs;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String endpoint, int failureThreshold, long openMs, long maxOpenMs) {
+        this.endpoint = endpoint;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseOpenMs = Math.max(1, openMs);
+        this.maxOpenMs = Math.max(this.baseOpenMs, maxOpenMs);
+        this.openMs = this.baseOpenMs;
+    }
+
+    /**
+     * 返回端点对应的熔断器，首次使用时按配置创建
+     */
+    public static CircuitBreaker forEndpoint(String endpoint, ConfigManager cfg) {
+        synchronized (BREAKERS) {
+            return BREAKERS.computeIfAbsent(endpoint, url -> new CircuitBreaker(url,
+                    cfg.getInt("api.circuit.failureThreshold", 5),
+                    cfg.getInt("api.circuit.openSeconds", 30) * 1000L,
+                    cfg.getInt("api.circuit.maxOpenSeconds", 300) * 1000L));
+        }
+    }
+
+    /**
+     * 等待直到允许发起调用
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (state == State.OPEN) {
+                long remaining = openUntil - System.currentTimeMillis();
+                if (remaining > 0) {
+                    wait(remaining);
+                    continue;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+                logger.info("端点 {} 熔断时间结束，发起试探调用", endpoint);
+            }
+            if (!trialInFlight) {
+                trialInFlight = true;
+                return;
+            }
+            wait();
+        }
+    }
+
+    /**
+     * 不等待：允许调用时占用名额并返回 true，熔断中（或试探调用进行中）返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            logger.info("端点 {} 熔断时间结束，发起试探调用", endpoint);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            logger.info("端点 {} 已恢复，解除熔断", endpoint);
+            state = State.CLOSED;
+            openMs = baseOpenMs;
+            trialInFlight = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 记录一次说明端点不可用的失败（网络错误、429、5xx）
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            // 试探失败，延长熔断时间
+            openMs = Math.min(maxOpenMs, openMs * 2);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 记录一次与端点可用性无关的结果（如请求参数错误），只释放试探名额
+     */
+    public synchronized void recordNeutral() {
+        if (state == State.HALF_OPEN && trialInFlight) {
+            trialInFlight = false;
+            notifyAll();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMs;
+        trialInFlight = false;
+        logger.warn("端点 {} 连续失败 {} 次，熔断 {} 秒", endpoint, consecutiveFailures, openMs / 1000);
+        notifyAll();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断剩余时间，未熔断时为 0
+     */
+    public synchronized long getRemainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.notebookllm;
+
+/**
+ * 一次大模型调用的完整结果：拼接后的内容以及完成信号（finish_reason、usage）
+ */
+public class CompletionResult {
+    public String content;
+    public String finishReason;
+    public int promptTokens = -1;
+    public int completionTokens = -1;
+    public int totalTokens = -1;
+    // 是否收到了流结束标记[DONE]
+    public boolean doneReceived;
+    // 调用过程中是否遇到过限流（429/503）后重试成功
+    public boolean throttled;
+    // 结果来自响应缓存，没有调用模型
+    public boolean cached;
+    // JSON 结果完整后主动断开了连接，没有等待服务端的完成信号
+    public boolean stoppedEarly;
+
+    public CompletionResult(String content) {
+        this.content = content;
+    }
+
+    /**
+     * 是否收到了明确的完成信号，或者已经收到完整的 JSON 结果
+     */
+    public boolean isComplete() {
+        return finishReason != null || doneReceived || stoppedEarly;
+    }
+
+    /**
+     * 是否因为达到 max_tokens 被截断
+     */
+    public boolean isTruncated() {
+        return "length".equals(finishReason);
+    }
+
+    public boolean hasUsage() {
+        return totalTokens >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CompletionResult{" +
+                "contentLength=" + (content != null ? content.length() : 0) +
+                ", finishReason='" + finishReason + '\'' +
+                ", promptTokens=" + promptTokens +
+                ", completionTokens=" + completionTokens +
+                ", totalTokens=" + totalTokens +
+                ", doneReceived=" + doneReceived +
+                ", throttled=" + throttled +
+                ", cached=" + cached +
+                ", stoppedEarly=" + stoppedEarly +
+                '}';
+    }
+}
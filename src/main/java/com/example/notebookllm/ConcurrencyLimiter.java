@@ -0,0 +1,81 @@
+package com.example.notebookllm;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 限制同时进行的模型调用数量。
+ * 开启自动调节后按加性增、乘性减调整上限：首字延迟相对基线保持稳定时，
+ * 每连续成功"当前上限"次就把上限加一；遇到 429/503 时上限减半。
+ */
+public class ConcurrencyLimiter {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    // 延迟超过基线的该倍数视为不稳定，不再提高上限
+    private static final double LATENCY_TOLERANCE = 1.5;
+    // 基线延迟的指数滑动平均系数
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final int maxLimit;
+    private final boolean autoTune;
+    private int limit;
+    private int inFlight;
+    private double baselineMs = -1;
+    private int stableSuccesses;
+
+    public ConcurrencyLimiter(int initialLimit, int maxLimit, boolean autoTune) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+        this.autoTune = autoTune;
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * 调用结束后释放。overloaded 表示期间服务端返回过 429/503，
+     * latencyMs 为首个片段到达的延迟，调用失败时传 -1
+     */
+    public synchronized void release(long latencyMs, boolean overloaded) {
+        inFlight--;
+        if (autoTune) {
+            if (overloaded) {
+                int reduced = Math.max(1, limit / 2);
+                if (reduced < limit) {
+                    logger.warn("模型服务限流或过载，并发上限从 {} 降到 {}", limit, reduced);
+                }
+                limit = reduced;
+                stableSuccesses = 0;
+            } else if (latencyMs >= 0) {
+                boolean stable = baselineMs < 0 || latencyMs <= baselineMs * LATENCY_TOLERANCE;
+                baselineMs = baselineMs < 0 ? latencyMs : baselineMs + EWMA_ALPHA * (latencyMs - baselineMs);
+                if (!stable) {
+                    stableSuccesses = 0;
+                } else if (++stableSuccesses >= limit && limit < maxLimit) {
+                    limit++;
+                    stableSuccesses = 0;
+                    logger.info("模型调用延迟稳定（基线 {} ms），并发上限提高到 {}", (long) baselineMs, limit);
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+}
@@ -66,4 +66,128 @@ public class ConfigManager {
     public String getDefaultApiUrl() {
         return "http://192.168.11.151:8091/v1/chat/completions";
     }
+    
+    // 获取模型服务端点列表：api.urls 为逗号分隔的多个端点，未设置时使用 api.url
+    public java.util.List<String> getApiUrls() {
+        java.util.List<String> urls = new java.util.ArrayList<>();
+        for (String url : get("api.urls", "").split(",")) {
+            if (!url.trim().isEmpty()) urls.add(url.trim());
+        }
+        if (urls.isEmpty()) {
+            String url = get("api.url", System.getenv().getOrDefault("OPENAI_API_URL", getDefaultApiUrl())).trim();
+            if (!url.isEmpty()) urls.add(url);
+        }
+        return urls;
+    }
+    
+    // 获取项目扫描并行度，默认使用CPU核数，1表示顺序扫描
+    public int getScanParallelism() {
+        return getInt("scan.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+    
+    // 获取项目扫描引擎：file（默认）、nio 或 incremental
+    public String getScanEngine() {
+        return get("scan.engine", "file").trim();
+    }
+    
+    // 获取NIO扫描的最大深度，-1表示不限制
+    public int getScanMaxDepth() {
+        return getInt("scan.maxDepth", -1);
+    }
+    
+    // NIO扫描是否跟随符号链接
+    public boolean isScanFollowLinks() {
+        return Boolean.parseBoolean(get("scan.followLinks", "true").trim());
+    }
+    
+    // 扫描时是否遵循各目录中的 .gitignore
+    public boolean isScanGitignore() {
+        return Boolean.parseBoolean(get("scan.gitignore", "false").trim());
+    }
+    
+    // 扫描完成后是否监听目录变化并自动更新项目列表
+    public boolean isScanWatch() {
+        return Boolean.parseBoolean(get("scan.watch", "false").trim());
+    }
+    
+    // 批量分析时是否跳过内容指纹未变化的项目，直接复用上次的分析结果
+    public boolean isSkipUnchangedProjects() {
+        return Boolean.parseBoolean(get("analysis.skipUnchanged", "true").trim());
+    }
+    
+    // 输出框最多保留的字符数，超出后裁掉较早的输出（完整输出写入 logs 目录）
+    public int getOutputMaxChars() {
+        return Math.max(1000, getInt("output.maxChars", 200000));
+    }
+    
+    // 输出框每秒最多刷新的次数，流式片段在两次刷新之间合并
+    public int getOutputFramesPerSecond() {
+        return Math.max(1, getInt("output.fps", 20));
+    }
+    
+    // logs 目录中最多保留的完整输出文件个数，启动新文件时删除更早的
+    public int getOutputKeepFiles() {
+        return Math.max(1, getInt("output.keepFiles", 20));
+    }
+    
+    // HTTP 连接池最多保留的空闲连接数
+    public int getHttpPoolMaxIdle() {
+        return Math.max(1, getInt("http.pool.maxIdle", 16));
+    }
+    
+    // HTTP 空闲连接的保持时间（秒）
+    public long getHttpPoolKeepAliveSeconds() {
+        return Math.max(1, getInt("http.pool.keepAliveSeconds", 300));
+    }
+    
+    // 流式分析时 JSON 结果完整后是否立即断开连接，不等待模型生成结尾的说明文字
+    public boolean isAnalysisStopAfterJson() {
+        return Boolean.parseBoolean(get("analysis.stopAfterJson", "true").trim());
+    }
+    
+    // 合并到一个请求中分析的小项目数量上限，1 表示不合并
+    public int getAnalysisBatchMaxProjects() {
+        return Math.max(1, getInt("analysis.batch.maxProjects", 1));
+    }
+    
+    // 提示词估算 token 数不超过该值的项目视为小项目，可以合并分析
+    public int getAnalysisBatchSmallProjectTokens() {
+        return getInt("analysis.batch.smallProjectTokens", 600);
+    }
+    
+    // 批量分析时同时调用模型的项目数
+    public int getAnalysisConcurrency() {
+        return Math.max(1, getInt("analysis.concurrency", 1));
+    }
+    
+    // 是否根据延迟和限流响应自动调节并发数
+    public boolean isAnalysisAutoTune() {
+        return Boolean.parseBoolean(get("analysis.autoTune", "false").trim());
+    }
+    
+    // 自动调节时的并发上限
+    public int getAnalysisMaxConcurrency() {
+        return Math.max(getAnalysisConcurrency(), getInt("analysis.maxConcurrency", 8));
+    }
+    
+    // 批量分析流水线各阶段之间的队列容量
+    public int getAnalysisQueueCapacity() {
+        return Math.max(1, getInt("analysis.queueCapacity", 2));
+    }
+    
+    // 单个项目分析提示词的 token 预算（含固定说明部分）
+    public int getPromptTokenBudget() {
+        return Math.max(512, getInt("prompt.tokenBudget", 4000));
+    }
+    
+    // 读取整数配置项，格式错误时使用默认值
+    public int getInt(String key, int def) {
+        String value = get(key, String.valueOf(def));
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("配置项格式错误，使用默认值 - Key: {}, Value: {}, Default: {}", key, value, def);
+            return def;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 提示词上下文打包：为项目目录中的候选文件打分排序，在给定的 token 预算内贪心地装入文件内容。
+ * 放得下的文件整段装入，放不下的文件截断到剩余预算，单个文件最多占用预算的一半，
+ * 并记录每个片段实际使用的 token 数。
+ */
+public class ContextPacker {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ContextPacker.class);
+
+    // 剩余预算低于该值时不再装入新文件
+    private static final int MIN_SECTION_TOKENS = 64;
+    // 单个文件最多占用的预算比例，避免一个大文件挤掉其他文件
+    private static final double MAX_SECTION_SHARE = 0.5;
+    // 估算读取字节数上限时使用的每 token 字节数（偏大，保证读取的内容足够填满预算）
+    private static final int MAX_BYTES_PER_TOKEN = 8;
+    // 最多考虑的候选文件数
+    private static final int MAX_CANDIDATES = 20;
+
+    private static final Set<String> MANIFESTS = new HashSet<>(Arrays.asList(
+        "pom.xml", "build.gradle", "build.gradle.kts", "package.json", "requirements.txt",
+        "setup.py", "pyproject.toml", "go.mod", "cargo.toml"
+    ));
+    private static final Set<String> SOURCE_EXTENSIONS = new HashSet<>(Arrays.asList(
+        "java", "py", "js", "ts", "go", "rs", "kt"
+    ));
+    private static final Set<String> ENTRY_NAMES = new HashSet<>(Arrays.asList(
+        "main", "app", "application", "index", "server", "cli", "__main__", "__init__"
+    ));
+
+    /**
+     * 候选文件及其排序分值
+     */
+    public static class Candidate {
+        public final File file;
+        public final String label;
+        public final int score;
+        final String startMarker;
+        final String endMarker;
+
+        Candidate(File file, String label, int score, String startMarker, String endMarker) {
+            this.file = file;
+            this.label = label;
+            this.score = score;
+            this.startMarker = startMarker;
+            this.endMarker = endMarker;
+        }
+    }
+
+    /**
+     * 装入提示词的一个片段
+     */
+    public static class Section {
+        public final String label;
+        public final String text;
+        public final int tokens;
+        public final boolean truncated;
+
+        Section(String label, String text, int tokens, boolean truncated) {
+            this.label = label;
+            this.text = text;
+            this.tokens = tokens;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * 打包结果
+     */
+    public static class PackedContext {
+        public final List<Section> sections = new ArrayList<>();
+        public final int budget;
+        public int usedTokens;
+
+        PackedContext(int budget) {
+            this.budget = budget;
+        }
+
+        /**
+         * 各片段 token 用量的简要说明，例如 "README 812, pom.xml 310(截断) = 1122/4000"
+         */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (Section s : sections) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(s.label).append(' ').append(s.tokens);
+                if (s.truncated) sb.append("(截断)");
+            }
+            if (sb.length() == 0) sb.append("无文件");
+            return sb.append(" = ").append(usedTokens).append('/').append(budget).toString();
+        }
+    }
+
+    private final TokenEstimator estimator;
+
+    public ContextPacker(TokenEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    public TokenEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * 收集项目根目录下的候选文件并按分值从高到低排序：
+     * README 最高，其次是构建/依赖清单，然后是源码文件（入口文件加分，超大文件减分）
+     */
+    public static List<Candidate> collectCandidates(File projectDir) {
+        List<Candidate> candidates = new ArrayList<>();
+        File[] files = projectDir.listFiles(File::isFile);
+        if (files == null) {
+            return candidates;
+        }
+        for (File f : files) {
+            String name = f.getName();
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.equals("readme.md")) {
+                candidates.add(new Candidate(f, "README", 100, "--- README START ---\n", "--- README END ---\n"));
+                continue;
+            }
+            int score;
+            if (MANIFESTS.contains(lower)) {
+                score = 80;
+            } else {
+                int dot = lower.lastIndexOf('.');
+                if (dot <= 0 || !SOURCE_EXTENSIONS.contains(lower.substring(dot + 1))) continue;
+                score = 50;
+                if (ENTRY_NAMES.contains(lower.substring(0, dot))) score += 15;
+                if (f.length() > 64 * 1024) score -= 10;
+            }
+            candidates.add(new Candidate(f, name, score,
+                    "--- FILE: " + name + " START ---\n", "--- FILE: " + name + " END ---\n"));
+        }
+        candidates.sort(Comparator.comparingInt((Candidate c) -> -c.score).thenComparing(c -> c.label));
+        return candidates.size() > MAX_CANDIDATES ? new ArrayList<>(candidates.subList(0, MAX_CANDIDATES)) : candidates;
+    }
+
+    /**
+     * 按顺序贪心装入候选文件，直到预算用完
+     */
+    public PackedContext pack(List<Candidate> candidates, int budget) {
+        PackedContext packed = new PackedContext(budget);
+        int sectionCap = Math.max(MIN_SECTION_TOKENS, (int) (budget * MAX_SECTION_SHARE));
+        for (Candidate c : candidates) {
+            int remaining = budget - packed.usedTokens;
+            if (remaining < MIN_SECTION_TOKENS) break;
+            int markerTokens = estimator.estimate(c.startMarker) + estimator.estimate(c.endMarker);
+            int allowed = Math.min(remaining, sectionCap) - markerTokens;
+            if (allowed <= 0) continue;
+
+            FileSampler.Sample sample;
+            try {
+                sample = FileSampler.sample(c.file, (int) Math.min(FileSampler.MAX_WINDOW_BYTES, (long) allowed * MAX_BYTES_PER_TOKEN));
+            } catch (IOException e) {
+                logger.warn("读取文件 {} 时发生错误", c.file.getName(), e);
+                continue;
+            }
+            if (sample.binary || sample.text.isEmpty()) continue;
+
+            String content = sample.text;
+            boolean truncated = sample.truncated;
+            int tokens = estimator.estimate(content);
+            if (tokens > allowed) {
+                content = truncateToTokens(content, allowed);
+                tokens = estimator.estimate(content);
+                truncated = true;
+            }
+            if (!content.endsWith("\n")) content = content + "\n";
+            String text = c.startMarker + content + c.endMarker;
+            int sectionTokens = tokens + markerTokens;
+            packed.sections.add(new Section(c.label, text, sectionTokens, truncated));
+            packed.usedTokens += sectionTokens;
+        }
+        logger.debug("上下文打包完成: {}", packed.describe());
+        return packed;
+    }
+
+    /**
+     * 截断到不超过 maxTokens 的最长前缀，尽量在换行处断开
+     */
+    private String truncateToTokens(String content, int maxTokens) {
+        int lo = 0, hi = content.length();
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (estimator.estimate(content.subSequence(0, mid)) <= maxTokens) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int cut = lo;
+        int newline = content.lastIndexOf('\n', cut - 1);
+        if (newline > cut / 2) cut = newline + 1;
+        if (cut > 0 && Character.isHighSurrogate(content.charAt(cut - 1))) cut--;
+        return content.substring(0, cut);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.notebookllm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个模型服务端点及其运行统计：进行中的请求数、响应延迟的指数滑动平均、请求和失败次数、健康状态
+ */
+public class Endpoint {
+    // 延迟滑动平均系数
+    private static final double EWMA_ALPHA = 0.3;
+
+    public final String url;
+    final CircuitBreaker breaker;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private double ewmaLatencyMs = -1;
+    private volatile boolean healthy = true;
+    private volatile String lastError;
+
+    Endpoint(String url, CircuitBreaker breaker) {
+        this.url = url;
+        this.breaker = breaker;
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    void end(boolean success, String error) {
+        outstanding.decrementAndGet();
+        if (!success) {
+            failures.incrementAndGet();
+            lastError = error;
+        }
+    }
+
+    /**
+     * 记录从发出请求到收到响应头的延迟
+     */
+    synchronized void recordLatency(long millis) {
+        ewmaLatencyMs = ewmaLatencyMs < 0 ? millis : ewmaLatencyMs + EWMA_ALPHA * (millis - ewmaLatencyMs);
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized double getEwmaLatencyMs() {
+        return ewmaLatencyMs;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(boolean healthy, String error) {
+        this.healthy = healthy;
+        if (!healthy) lastError = error;
+    }
+
+    /**
+     * 健康且未熔断
+     */
+    public boolean isAvailable() {
+        return healthy && breaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    public String describe() {
+        double latency = getEwmaLatencyMs();
+        StringBuilder sb = new StringBuilder();
+        sb.append(url)
+          .append(" - 状态: ").append(healthy ? "健康" : "不健康")
+          .append("，熔断: ").append(breaker.getState())
+          .append("，进行中: ").append(outstanding.get())
+          .append("，请求: ").append(requests.get())
+          .append("，失败: ").append(failures.get())
+          .append("，平均延迟: ").append(latency < 0 ? "-" : Math.round(latency) + " ms");
+        if (lastError != null) sb.append("，最近错误: ").append(lastError);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.notebookllm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在多个模型服务副本之间分配请求。
+ * 策略由 api.balance 选择：least（默认）优先进行中请求最少的端点，延迟低者优先；
+ * ewma 按"平均延迟 ×（进行中请求数 + 1）"打分。
+ * 不健康或已熔断的端点排在最后，只有其他端点都不可用时才会使用；
+ * 多个端点时后台定期发送 HEAD 请求检查健康状态。
+ */
+public class EndpointBalancer {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(EndpointBalancer.class);
+
+    private static final Map<List<String>, EndpointBalancer> BALANCERS = new HashMap<>();
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final boolean ewma;
+    private ScheduledExecutorService healthChecker;
+
+    private EndpointBalancer(List<String> urls, ConfigManager cfg) {
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url, CircuitBreaker.forEndpoint(url, cfg)));
+        }
+        this.ewma = "ewma".equalsIgnoreCase(cfg.get("api.balance", "least").trim());
+    }
+
+    /**
+     * 返回这组端点共用的负载均衡器，统计数据在多次批量分析之间保留
+     */
+    public static EndpointBalancer forUrls(List<String> urls, ConfigManager cfg) {
+        synchronized (BALANCERS) {
+            return BALANCERS.computeIfAbsent(new ArrayList<>(urls), key -> {
+                EndpointBalancer balancer = new EndpointBalancer(key, cfg);
+                int interval = cfg.getInt("api.healthCheckSeconds", 30);
+                if (key.size() > 1 && interval > 0) {
+                    balancer.startHealthChecks(interval);
+                }
+                logger.info("模型服务端点: {}，负载均衡策略: {}", key, balancer.ewma ? "ewma" : "least");
+                return balancer;
+            });
+        }
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 选择一个端点并占用其熔断器名额。优先选择不在 excluded 中（本次调用已失败过）的可用端点；
+     * 所有端点都已熔断时，等待最早恢复的端点。
+     */
+    public Endpoint acquire(Set<Endpoint> excluded) throws InterruptedException {
+        for (Endpoint e : rank(excluded)) {
+            if (e.breaker.tryAcquire()) {
+                return e;
+            }
+        }
+        Endpoint soonest = endpoints.get(0);
+        for (Endpoint e : endpoints) {
+            if (e.breaker.getRemainingOpenMillis() < soonest.breaker.getRemainingOpenMillis()) {
+                soonest = e;
+            }
+        }
+        soonest.breaker.acquire();
+        return soonest;
+    }
+
+    /**
+     * 除 excluded 外是否还有可用端点
+     */
+    public boolean hasAlternative(Set<Endpoint> excluded) {
+        for (Endpoint e : endpoints) {
+            if (!excluded.contains(e) && e.isAvailable()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 所有端点都已熔断时返回最早恢复的剩余时间，否则返回 0
+     */
+    public long getPauseMillis() {
+        long min = Long.MAX_VALUE;
+        for (Endpoint e : endpoints) {
+            min = Math.min(min, e.breaker.getRemainingOpenMillis());
+        }
+        return min;
+    }
+
+    private List<Endpoint> rank(Set<Endpoint> excluded) {
+        List<Endpoint> ranked = new ArrayList<>(endpoints);
+        Comparator<Endpoint> byLoad = ewma
+                ? Comparator.comparingDouble(e -> Math.max(0, e.getEwmaLatencyMs()) * (e.getOutstanding() + 1))
+                : Comparator.<Endpoint>comparingInt(Endpoint::getOutstanding).thenComparingDouble(Endpoint::getEwmaLatencyMs);
+        ranked.sort(Comparator.<Endpoint, Boolean>comparing(excluded::contains)
+                .thenComparing(e -> !e.isAvailable())
+                .thenComparing(byLoad));
+        return ranked;
+    }
+
+    private void startHealthChecks(int intervalSeconds) {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "endpoint-health");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 端点返回任意非 5xx 响应即视为健康（POST 接口对 HEAD 通常返回 405，部分服务返回 501）
+     */
+    private void checkHealth() {
+        OkHttpClient http = SharedHttpClient.get().newBuilder().callTimeout(5, TimeUnit.SECONDS).build();
+        for (Endpoint e : endpoints) {
+            boolean healthy;
+            String error = null;
+            try (Response response = http.newCall(new Request.Builder().url(e.url).head().build()).execute()) {
+                healthy = response.code() < 500 || response.code() == 501;
+                if (!healthy) error = "健康检查返回 " + response.code();
+            } catch (Exception ex) {
+                healthy = false;
+                error = "健康检查失败: " + ex.getMessage();
+            }
+            if (healthy != e.isHealthy()) {
+                logger.warn("端点 {} 健康状态变化: {}", e.url, healthy ? "恢复" : error);
+            }
+            e.setHealthy(healthy, error);
+        }
+    }
+
+    /**
+     * 各端点的统计信息，每行一个端点
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Endpoint e : endpoints) {
+            sb.append(e.describe()).append('\n');
+        }
+        return sb.toString();
+    }
+}
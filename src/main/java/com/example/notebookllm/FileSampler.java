@@ -0,0 +1,197 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 有界的文件采样读取：通过 FileChannel 只读取文件开头固定大小的字节窗口，不会把大文件整个读入内存。
+ * 根据开头的魔数和 BOM 判断二进制文件和字符集：有 BOM 按 BOM，否则先按 UTF-8 严格解码，失败时依次尝试 GB18030 和 ISO-8859-1。
+ * 窗口末尾被截断的多字节字符会被丢弃，保证返回的文本在完整字符处结束。
+ */
+public class FileSampler {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(FileSampler.class);
+
+    // 单次采样允许的最大字节数
+    public static final int MAX_WINDOW_BYTES = 256 * 1024;
+    // 用于判断二进制内容的探测长度
+    private static final int SNIFF_BYTES = 8192;
+
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    // 常见二进制文件的魔数
+    private static final byte[][] BINARY_MAGICS = {
+        {(byte) 0x89, 'P', 'N', 'G'},               // PNG
+        {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},    // JPEG
+        {'G', 'I', 'F', '8'},                       // GIF
+        {'%', 'P', 'D', 'F'},                       // PDF
+        {'P', 'K', 0x03, 0x04},                     // ZIP / JAR
+        {0x1F, (byte) 0x8B},                        // GZIP
+        {0x7F, 'E', 'L', 'F'},                      // ELF
+        {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE} // Java class
+    };
+
+    /**
+     * 一次采样的结果
+     */
+    public static class Sample {
+        public final String text;
+        public final Charset charset;
+        public final boolean binary;
+        // 文件内容没有全部读入（文件大于窗口）
+        public final boolean truncated;
+        public final int bytesRead;
+        public final long fileSize;
+
+        Sample(String text, Charset charset, boolean binary, boolean truncated, int bytesRead, long fileSize) {
+            this.text = text;
+            this.charset = charset;
+            this.binary = binary;
+            this.truncated = truncated;
+            this.bytesRead = bytesRead;
+            this.fileSize = fileSize;
+        }
+    }
+
+    private FileSampler() {
+    }
+
+    /**
+     * 读取文件开头最多 maxBytes 个字节并解码为文本，二进制文件返回空文本
+     */
+    public static Sample sample(File file, int maxBytes) throws IOException {
+        int window = Math.max(0, Math.min(maxBytes, MAX_WINDOW_BYTES));
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(window, size));
+            while (buf.hasRemaining() && ch.read(buf) > 0) {
+                // 读满窗口或到达文件末尾
+            }
+            buf.flip();
+            int bytesRead = buf.remaining();
+            boolean truncated = bytesRead < size;
+
+            if (isBinary(buf)) {
+                logger.debug("跳过二进制文件: {}", file.getName());
+                return new Sample("", null, true, truncated, bytesRead, size);
+            }
+
+            Charset bomCharset = skipBom(buf);
+            if (bomCharset != null) {
+                String text = decode(buf.duplicate(), bomCharset, truncated);
+                if (text != null) {
+                    return new Sample(text, bomCharset, false, truncated, bytesRead, size);
+                }
+                // BOM 后的内容按该字符集解码失败，改为按无 BOM 的方式识别（最终退回 ISO-8859-1，不会失败）
+                logger.debug("文件 {} 的内容与 BOM 不符，重新识别字符集", file.getName());
+            }
+            for (Charset cs : new Charset[]{StandardCharsets.UTF_8, GB18030}) {
+                String text = decode(buf.duplicate(), cs, truncated);
+                if (text != null) {
+                    return new Sample(text, cs, false, truncated, bytesRead, size);
+                }
+            }
+            return new Sample(decode(buf, StandardCharsets.ISO_8859_1, truncated), StandardCharsets.ISO_8859_1,
+                    false, truncated, bytesRead, size);
+        }
+    }
+
+    /**
+     * 魔数匹配或开头一段内容中出现 NUL 字节视为二进制
+     */
+    private static boolean isBinary(ByteBuffer buf) {
+        for (byte[] magic : BINARY_MAGICS) {
+            if (startsWith(buf, magic)) return true;
+        }
+        if (isPortableExecutable(buf)) return true;
+        // UTF-16 文本中含大量 NUL，交给 BOM 处理
+        if (startsWith(buf, new byte[]{(byte) 0xFF, (byte) 0xFE}) || startsWith(buf, new byte[]{(byte) 0xFE, (byte) 0xFF})) {
+            return false;
+        }
+        int end = buf.position() + Math.min(buf.remaining(), SNIFF_BYTES);
+        for (int i = buf.position(); i < end; i++) {
+            if (buf.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Windows 可执行文件：开头是 "MZ"，且 0x3C 处记录的偏移位置上是 "PE\0\0" 签名。
+     * 只看 "MZ" 两个字节会把以 MZ 开头的文本文件也当作二进制
+     */
+    private static boolean isPortableExecutable(ByteBuffer buf) {
+        if (!startsWith(buf, new byte[]{'M', 'Z'}) || buf.remaining() < 0x40) return false;
+        int base = buf.position();
+        long peOffset = (buf.get(base + 0x3C) & 0xFFL)
+                | (buf.get(base + 0x3D) & 0xFFL) << 8
+                | (buf.get(base + 0x3E) & 0xFFL) << 16
+                | (buf.get(base + 0x3F) & 0xFFL) << 24;
+        if (peOffset < 0x40 || peOffset > buf.remaining() - 4) return false;
+        int pe = base + (int) peOffset;
+        return buf.get(pe) == 'P' && buf.get(pe + 1) == 'E' && buf.get(pe + 2) == 0 && buf.get(pe + 3) == 0;
+    }
+
+    /**
+     * 识别并跳过 BOM，返回对应字符集
+     */
+    private static Charset skipBom(ByteBuffer buf) {
+        if (startsWith(buf, new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF})) {
+            buf.position(buf.position() + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(buf, new byte[]{(byte) 0xFF, (byte) 0xFE})) {
+            buf.position(buf.position() + 2);
+            return StandardCharsets.UTF_16LE;
+        }
+        if (startsWith(buf, new byte[]{(byte) 0xFE, (byte) 0xFF})) {
+            buf.position(buf.position() + 2);
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer buf, byte[] prefix) {
+        if (buf.remaining() < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(buf.position() + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 严格解码，遇到非法字节返回 null。窗口被截断时不把结尾当作输入结束，
+     * 末尾不完整的多字节字符留在缓冲区中被丢弃。
+     */
+    private static String decode(ByteBuffer in, Charset cs, boolean truncated) {
+        CharsetDecoder decoder = cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate((int) (in.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+        CoderResult result = decoder.decode(in, out, !truncated);
+        if (result.isError()) {
+            return null;
+        }
+        if (!truncated) {
+            result = decoder.flush(out);
+            if (result.isError()) return null;
+        }
+        out.flip();
+        // 不在代理对中间截断
+        int len = out.remaining();
+        if (len > 0 && Character.isHighSurrogate(out.get(len - 1))) len--;
+        return out.subSequence(0, len).toString();
+    }
+}
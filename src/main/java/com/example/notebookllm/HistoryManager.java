@@ -4,7 +4,13 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -20,12 +26,39 @@ public class HistoryManager {
     // 添加日志实例
     private static final Logger logger = LoggerFactory.getLogger(HistoryManager.class);
     
-    private static final String JDBC_URL = "jdbc:h2:./notebookllm_history";
+    // 每次操作都会打开新连接，DB_CLOSE_DELAY=-1 让数据库在最后一个连接关闭后保持打开，避免每次重新加载数据库文件
+    private static volatile String jdbcUrl = "jdbc:h2:./notebookllm_history;DB_CLOSE_DELAY=-1";
     private static final String USER = "sa";
     private static final String PASSWORD = "";
 
+    // 分页查询允许排序的列，排序列直接拼进 SQL，只接受这些列名
+    private static final Set<String> SUMMARY_SORT_COLUMNS = new HashSet<>(Arrays.asList(
+            "id", "project_name", "project_description", "analyzed_at"));
+
+    // 最近读取的分析结果（按 ID），按字符数限制总大小，所有实例共用；历史记录写入后不会修改
+    private static final int MAX_CACHED_RESULT_CHARS = 4 * 1024 * 1024;
+    private static final Map<Integer, String> RESULT_CACHE = new LinkedHashMap<>(64, 0.75f, true);
+    private static int cachedResultChars;
+
+    // 只查询摘要列时的列表，分析结果按需读取
+    private static final String SUMMARY_COLUMNS = "id, project_path, project_name, project_description, analyzed_at, fingerprint";
+
+    /**
+     * 打开应用数据库连接，历史记录之外的本地数据（如扫描索引）也保存在同一个数据库中
+     */
+    static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, USER, PASSWORD);
+    }
+
+    /**
+     * 改用其他数据库（如压测使用的内存数据库），需在第一次访问数据库之前调用
+     */
+    static void useDatabase(String url) {
+        jdbcUrl = url;
+    }
+
     public HistoryManager() {
-        try (Connection conn = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection conn = openConnection()) {
             // 直接创建新表结构（如果不存在）
             Statement stmt = conn.createStatement();
             stmt.execute("CREATE TABLE IF NOT EXISTS analysis_history (" +
@@ -35,6 +68,13 @@ public class HistoryManager {
                     "project_description VARCHAR(1000), " +
                     "result CLOB, " +
                     "analyzed_at TIMESTAMP)");
+            // 旧版本数据库没有指纹列，按需补齐
+            stmt.execute("ALTER TABLE analysis_history ADD COLUMN IF NOT EXISTS fingerprint VARCHAR(64)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_path_fingerprint ON analysis_history(project_path, fingerprint)");
+            // 历史记录表格按时间、名称或描述分页排序，id 放在索引中，分页时只扫描索引
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_analyzed_at ON analysis_history(analyzed_at, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_project_name ON analysis_history(project_name, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_project_description ON analysis_history(project_description, id)");
             logger.info("数据库初始化完成，历史记录表已准备就绪");
         } catch (SQLException e) {
             logger.error("数据库初始化失败", e);
@@ -48,15 +88,16 @@ public class HistoryManager {
         // 确保项目名称和描述是从分析结果中提取的
         result.extractProjectInfoFromResult();
         
-        try (Connection conn = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection conn = openConnection()) {
             // 使用新的表结构保存数据
             PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO analysis_history (project_path, project_name, project_description, result, analyzed_at) VALUES (?, ?, ?, ?, ?)");
+                "INSERT INTO analysis_history (project_path, project_name, project_description, result, analyzed_at, fingerprint) VALUES (?, ?, ?, ?, ?, ?)");
             ps.setString(1, result.projectPath);
             ps.setString(2, result.projectName);
             ps.setString(3, result.projectDescription);
-            ps.setString(4, result.result);
+            ps.setString(4, result.getResult());
             ps.setTimestamp(5, Timestamp.valueOf(result.analyzedAt));
+            ps.setString(6, result.fingerprint);
             ps.executeUpdate();
             logger.info("分析结果保存成功 - 项目路径: {}", result.projectPath);
         } catch (SQLException e) {
@@ -69,7 +110,7 @@ public class HistoryManager {
         List<AnalysisResult> results = new ArrayList<>();
         logger.debug("从数据库查询历史记录");
         
-        try (Connection conn = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection conn = openConnection()) {
             // 查询所有字段
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery("SELECT id, project_path, project_name, project_description, result, analyzed_at FROM analysis_history ORDER BY analyzed_at DESC");
@@ -92,6 +133,190 @@ public class HistoryManager {
         return results;
     }
     
+    /**
+     * 历史记录总数
+     */
+    public int count() {
+        try (Connection conn = openConnection()) {
+            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM analysis_history");
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            logger.error("统计历史记录失败", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 分页查询历史记录摘要，只读取表格显示需要的列，分析结果在调用 getResult() 时才读取
+     * @param offset 起始行
+     * @param limit 最多返回的行数
+     * @param sortColumn 排序列：id、project_name、project_description 或 analyzed_at
+     * @param ascending 是否升序
+     * @param total 调用方已统计的记录总数，降序时据此换算分页位置，不必每页重新统计
+     */
+    public List<AnalysisResult> listSummaries(int offset, int limit, String sortColumn, boolean ascending, int total) {
+        if (!SUMMARY_SORT_COLUMNS.contains(sortColumn)) {
+            throw new IllegalArgumentException("不支持的排序列: " + sortColumn);
+        }
+        List<AnalysisResult> results = new ArrayList<>(limit);
+        try (Connection conn = openConnection()) {
+            // H2 不能倒序扫描索引来排序，降序时换算成从末尾数起的升序分页，取出后再反转
+            int ascOffset = offset;
+            int ascLimit = limit;
+            if (!ascending) {
+                ascOffset = Math.max(0, total - offset - limit);
+                ascLimit = Math.max(0, Math.min(limit, total - offset));
+            }
+            // 先在索引中定位该页的 id，再按主键读取这些行；id 作为第二排序键，排序列相同的行在各页之间顺序固定
+            String orderBy = "id".equals(sortColumn) ? "id" : sortColumn + ", id";
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT h.id, h.project_path, h.project_name, h.project_description, h.analyzed_at, h.fingerprint " +
+                "FROM (SELECT id FROM analysis_history ORDER BY " + orderBy + " LIMIT ? OFFSET ?) p " +
+                "JOIN analysis_history h ON h.id = p.id ORDER BY h." + orderBy.replace(", id", ", h.id"));
+            ps.setInt(1, ascLimit);
+            ps.setInt(2, ascOffset);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                results.add(readSummary(rs));
+            }
+            if (!ascending) {
+                java.util.Collections.reverse(results);
+            }
+            logger.debug("分页查询历史记录 - 起始: {}, 数量: {}, 排序: {} {}", offset, results.size(), sortColumn, ascending ? "ASC" : "DESC");
+        } catch (SQLException e) {
+            logger.error("分页查询历史记录失败", e);
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+    
+    /**
+     * 查找同一项目最近一次指纹相同的分析结果
+     * @return 匹配的记录，没有时返回 null
+     */
+    public AnalysisResult findByFingerprint(String projectPath, String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        try (Connection conn = openConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + SUMMARY_COLUMNS + " FROM analysis_history " +
+                "WHERE project_path = ? AND fingerprint = ? ORDER BY analyzed_at DESC LIMIT 1");
+            ps.setString(1, projectPath);
+            ps.setString(2, fingerprint);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            AnalysisResult found = readSummary(rs);
+            logger.debug("找到指纹相同的历史记录 - 项目路径: {}, ID: {}", projectPath, found.id);
+            return found;
+        } catch (SQLException e) {
+            logger.error("按指纹查询历史记录失败 - 项目路径: {}", projectPath, e);
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * 按 ID 查找历史记录，分析结果在调用 getResult() 时才读取
+     * @return 对应的记录，不存在时返回 null
+     */
+    public AnalysisResult findById(int id) {
+        try (Connection conn = openConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + SUMMARY_COLUMNS + " FROM analysis_history WHERE id = ?");
+            ps.setInt(1, id);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? readSummary(rs) : null;
+        } catch (SQLException e) {
+            logger.error("按 ID 查询历史记录失败 - ID: {}", id, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 查找项目最近一次的分析记录，分析结果在调用 getResult() 时才读取
+     * @return 最近的记录，项目没有分析过时返回 null
+     */
+    public AnalysisResult latestByProjectPath(String projectPath) {
+        try (Connection conn = openConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + SUMMARY_COLUMNS + " FROM analysis_history " +
+                "WHERE project_path = ? ORDER BY analyzed_at DESC, id DESC LIMIT 1");
+            ps.setString(1, projectPath);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? readSummary(rs) : null;
+        } catch (SQLException e) {
+            logger.error("查询项目最近的历史记录失败 - 项目路径: {}", projectPath, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取一条记录的分析结果，最近读取过的直接从缓存返回
+     * @return 分析结果原文，记录不存在时返回 null
+     */
+    public String loadResult(int id) {
+        synchronized (RESULT_CACHE) {
+            String cached = RESULT_CACHE.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String result;
+        try (Connection conn = openConnection()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT result FROM analysis_history WHERE id = ?");
+            ps.setInt(1, id);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            result = rs.getString(1);
+        } catch (SQLException e) {
+            logger.error("读取分析结果失败 - ID: {}", id, e);
+            throw new RuntimeException(e);
+        }
+        if (result != null) {
+            cacheResult(id, result);
+        }
+        return result;
+    }
+
+    private static void cacheResult(int id, String result) {
+        // 超过缓存总量一半的结果不缓存，避免一条记录挤掉其他所有记录
+        if (result.length() > MAX_CACHED_RESULT_CHARS / 2) {
+            return;
+        }
+        synchronized (RESULT_CACHE) {
+            String previous = RESULT_CACHE.put(id, result);
+            cachedResultChars += result.length() - (previous == null ? 0 : previous.length());
+            Iterator<String> it = RESULT_CACHE.values().iterator();
+            while (cachedResultChars > MAX_CACHED_RESULT_CHARS && it.hasNext()) {
+                cachedResultChars -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 从摘要列构建记录，分析结果由 loadResult 按需读取
+     */
+    private AnalysisResult readSummary(ResultSet rs) throws SQLException {
+        AnalysisResult ar = new AnalysisResult(
+            rs.getInt("id"),
+            rs.getString("project_path"),
+            rs.getString("project_name"),
+            rs.getString("project_description"),
+            null,
+            rs.getTimestamp("analyzed_at").toLocalDateTime()
+        );
+        ar.fingerprint = rs.getString("fingerprint");
+        int id = ar.id;
+        ar.setResultLoader(() -> loadResult(id));
+        return ar;
+    }
+    
     /**
      * 导出历史记录为CSV格式
      * @param filePath 导出文件路径
@@ -115,7 +340,7 @@ public class HistoryManager {
                     escapeCsv(result.projectName),
                     escapeCsv(result.projectDescription),
                     result.analyzedAt.format(formatter),
-                    escapeCsv(getSummary(result.result, 200))
+                    escapeCsv(getSummary(result.getResult(), 200))
                 ));
             }
             
@@ -148,10 +373,10 @@ public class HistoryManager {
             
             // 尝试将result字段解析为JSON，如果失败则作为字符串
             try {
-                Object resultObj = mapper.readValue(result.result, Object.class);
+                Object resultObj = mapper.readValue(result.getResult(), Object.class);
                 node.set("result", mapper.valueToTree(resultObj));
             } catch (Exception e) {
-                node.put("result", result.result);
+                node.put("result", result.getResult());
             }
             
             arrayNode.add(node);
@@ -0,0 +1,181 @@
+package com.example.notebookllm;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 历史记录表格的分页数据模型。只在表格显示到某一页时才从数据库读取该页的摘要列，
+ * 排序由数据库完成；已读取的页按最近使用保留有限个数，历史记录再多打开也不会变慢。
+ * 除内部的加载线程外，所有方法都在事件线程中调用。
+ */
+public class HistoryTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(HistoryTableModel.class);
+
+    private static final String[] COLUMNS = { "ID", "Project Name", "Project Description", "Analyzed At" };
+    private static final String[] SORT_COLUMNS = { "id", "project_name", "project_description", "analyzed_at" };
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 20;
+    private static final String LOADING = "加载中…";
+
+    private final transient HistoryManager hm;
+    private final transient ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "history-page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    // 页号 -> 该页的记录，按访问顺序淘汰
+    private final Map<Integer, List<AnalysisResult>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<AnalysisResult>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int rowCount;
+    // 正在后台统计行数，期间不读取页面
+    private boolean counting;
+    private int sortColumn = 3;
+    private boolean ascending;
+    // 刷新或改变排序后递增，丢弃之前发出的页面请求的结果
+    private int generation;
+
+    public HistoryTableModel(HistoryManager hm) {
+        this.hm = hm;
+        refresh();
+    }
+
+    /**
+     * 丢弃已读取的页面并在加载线程中重新统计行数，统计完成后刷新表格
+     */
+    public void refresh() {
+        int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        counting = true;
+        fireTableDataChanged();
+        if (loader.isShutdown()) return;
+        loader.execute(() -> {
+            int count;
+            try {
+                count = hm.count();
+            } catch (RuntimeException ex) {
+                logger.error("统计历史记录失败", ex);
+                count = 0;
+            }
+            int total = count;
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                counting = false;
+                rowCount = total;
+                fireTableDataChanged();
+                logger.debug("历史记录表格刷新，共 {} 条记录", total);
+            });
+        });
+    }
+
+    /**
+     * 按指定列排序，已经按该列排序时切换升降序
+     */
+    public void toggleSort(int column) {
+        if (column < 0 || column >= COLUMNS.length) return;
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            // 时间默认从新到旧，其他列默认升序
+            ascending = column != 3;
+        }
+        refresh();
+    }
+
+    /**
+     * 指定行的记录摘要（不含分析结果），该页尚未读取时返回 null
+     */
+    public AnalysisResult getRow(int row) {
+        List<AnalysisResult> page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            requestPage(row / PAGE_SIZE);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * 停止后台加载，对话框关闭时调用
+     */
+    public void close() {
+        loader.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == sortColumn ? COLUMNS[column] + (ascending ? " ▲" : " ▼") : COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        AnalysisResult ar = getRow(row);
+        if (ar == null) {
+            return column == 0 ? "" : LOADING;
+        }
+        switch (column) {
+            case 0: return ar.id;
+            case 1: return ar.projectName;
+            case 2: return ar.projectDescription;
+            default: return ar.analyzedAt.toString();
+        }
+    }
+
+    private void requestPage(int pageNo) {
+        if (counting || loader.isShutdown() || !loading.add(pageNo)) return;
+        int gen = generation;
+        String column = SORT_COLUMNS[sortColumn];
+        boolean asc = ascending;
+        int total = rowCount;
+        loader.execute(() -> {
+            List<AnalysisResult> page;
+            try {
+                page = hm.listSummaries(pageNo * PAGE_SIZE, PAGE_SIZE, column, asc, total);
+            } catch (RuntimeException ex) {
+                // 该页保持加载中状态，刷新后再重试，避免每次重绘都重新请求
+                logger.error("读取历史记录第 {} 页失败", pageNo, ex);
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                loading.remove(pageNo);
+                pages.put(pageNo, page);
+                int first = pageNo * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (last >= first) fireTableRowsUpdated(first, last);
+            });
+        });
+    }
+}
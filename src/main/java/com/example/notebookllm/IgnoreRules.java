@@ -0,0 +1,334 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 扫描时的目录忽略规则。
+ * 内置目录名和用户配置（scan.ignore，逗号分隔）中不含通配符的名称编译进哈希集合，
+ * 其余通配符模式预编译为 PathMatcher：不含 / 的模式匹配目录名，含 / 的模式匹配相对扫描根目录的路径。
+ * 开启 scan.gitignore 后，进入目录时读取其中的 .gitignore，规则对该目录的所有子目录生效。
+ * 扫描引擎在列出子目录内容之前调用 {@link #isIgnored(Path)}，被忽略的目录不会被列出。
+ */
+public class IgnoreRules {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(IgnoreRules.class);
+
+    // 需要忽略的文件夹名称
+    private static final String[] DEFAULT_IGNORED_DIRECTORIES = {
+        "target",           // Maven构建输出目录
+        "node_modules",     // Node.js依赖目录
+        ".git",             // Git版本控制目录
+        ".svn",             // SVN版本控制目录
+        ".gradle",          // Gradle缓存目录
+        "build",            // Gradle构建输出目录
+        "dist",             // 常见的构建输出目录
+        "out",              // IntelliJ IDEA输出目录
+        "bin",              // 二进制文件目录
+        ".idea",            // IntelliJ IDEA配置目录
+        ".vscode"           // VS Code配置目录
+    };
+
+    // 需要忽略的目录名前缀
+    private static final String[] DEFAULT_IGNORED_PREFIXES = { ".plugin" };
+
+    private static final String GITIGNORE = ".gitignore";
+
+    private static final IgnoreRules DEFAULTS = new IgnoreRules(null, Collections.emptyList(), false);
+
+    private final Path root;
+    private final Set<String> names;
+    private final List<PathMatcher> nameGlobs;
+    private final List<PathMatcher> pathGlobs;
+    private final boolean honorGitignore;
+    // 从扫描根目录到当前目录途经的 .gitignore 规则，最近的在链表头
+    private final GitignoreFrame gitignore;
+
+    private IgnoreRules(Path root, List<String> patterns, boolean honorGitignore) {
+        this.root = root;
+        this.honorGitignore = honorGitignore;
+        this.gitignore = null;
+        this.names = new HashSet<>();
+        this.nameGlobs = new ArrayList<>();
+        this.pathGlobs = new ArrayList<>();
+        for (String name : DEFAULT_IGNORED_DIRECTORIES) names.add(name.toLowerCase(Locale.ROOT));
+        for (String pattern : patterns) {
+            String p = pattern.trim();
+            if (p.isEmpty()) continue;
+            if (!hasGlobChars(p) && !p.contains("/")) {
+                names.add(p.toLowerCase(Locale.ROOT));
+                continue;
+            }
+            PathMatcher matcher = compile(p);
+            if (matcher == null) continue;
+            if (p.contains("/")) {
+                pathGlobs.add(matcher);
+            } else {
+                nameGlobs.add(matcher);
+            }
+        }
+    }
+
+    private IgnoreRules(IgnoreRules base, GitignoreFrame gitignore) {
+        this.root = base.root;
+        this.honorGitignore = base.honorGitignore;
+        this.gitignore = gitignore;
+        // 编译好的规则在整棵目录树中共享
+        this.names = base.names;
+        this.nameGlobs = base.nameGlobs;
+        this.pathGlobs = base.pathGlobs;
+    }
+
+    /**
+     * 只包含内置规则
+     */
+    public static IgnoreRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * 按配置构建扫描根目录的忽略规则
+     */
+    public static IgnoreRules fromConfig(ConfigManager cfg, File root) {
+        List<String> patterns = new ArrayList<>();
+        for (String p : cfg.get("scan.ignore", "").split(",")) {
+            if (!p.trim().isEmpty()) patterns.add(p.trim());
+        }
+        boolean honorGitignore = cfg.isScanGitignore();
+        if (!patterns.isEmpty() || honorGitignore) {
+            logger.info("扫描忽略规则 - 自定义模式: {}，遵循.gitignore: {}", patterns, honorGitignore);
+        }
+        return new IgnoreRules(root.getAbsoluteFile().toPath(), patterns, honorGitignore);
+    }
+
+    public boolean isIgnored(File dir) {
+        return isIgnored(dir.toPath());
+    }
+
+    /**
+     * 判断目录是否应被忽略
+     */
+    public boolean isIgnored(Path dir) {
+        Path fileName = dir.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        String name = fileName.toString();
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (names.contains(lower)) {
+            return true;
+        }
+        for (String prefix : DEFAULT_IGNORED_PREFIXES) {
+            if (lower.startsWith(prefix)) return true;
+        }
+        for (PathMatcher m : nameGlobs) {
+            if (m.matches(fileName)) return true;
+        }
+        if (!pathGlobs.isEmpty() && root != null) {
+            Path abs = dir.toAbsolutePath();
+            if (abs.startsWith(root)) {
+                Path rel = root.relativize(abs);
+                for (PathMatcher m : pathGlobs) {
+                    if (m.matches(rel)) return true;
+                }
+            }
+        }
+        return gitignore != null && gitignore.isIgnored(dir.toAbsolutePath(), fileName);
+    }
+
+    /**
+     * 返回适用于 dir 子目录的规则，根据目录列表判断是否存在 .gitignore
+     */
+    public IgnoreRules enter(File dir, File[] children) {
+        if (!honorGitignore) {
+            return this;
+        }
+        for (File f : children) {
+            if (GITIGNORE.equals(f.getName())) {
+                return enterWithGitignore(dir.toPath());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 返回适用于 dir 子目录的规则，在没有目录列表时直接检查 .gitignore 是否存在
+     */
+    public IgnoreRules enter(Path dir) {
+        if (!honorGitignore || !Files.isRegularFile(dir.resolve(GITIGNORE))) {
+            return this;
+        }
+        return enterWithGitignore(dir);
+    }
+
+    private IgnoreRules enterWithGitignore(Path dir) {
+        Path base = dir.toAbsolutePath();
+        List<GitignoreRule> rules = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(base.resolve(GITIGNORE), StandardCharsets.UTF_8)) {
+                GitignoreRule rule = GitignoreRule.parse(base, line);
+                if (rule != null) rules.add(rule);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("读取.gitignore失败: {}", base.resolve(GITIGNORE), e);
+            return this;
+        }
+        if (rules.isEmpty()) {
+            return this;
+        }
+        logger.debug("加载.gitignore规则 {} 条: {}", rules.size(), base);
+        return new IgnoreRules(this, new GitignoreFrame(gitignore, rules));
+    }
+
+    private static boolean hasGlobChars(String p) {
+        return p.indexOf('*') >= 0 || p.indexOf('?') >= 0 || p.indexOf('[') >= 0 || p.indexOf('{') >= 0;
+    }
+
+    private static PathMatcher compile(String glob) {
+        try {
+            return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        } catch (PatternSyntaxException e) {
+            logger.warn("忽略无效的匹配模式: {}", glob, e);
+            return null;
+        }
+    }
+
+    /**
+     * 一个目录中 .gitignore 的规则，parent 指向上级目录的规则
+     */
+    private static class GitignoreFrame {
+        final GitignoreFrame parent;
+        final List<GitignoreRule> rules;
+
+        GitignoreFrame(GitignoreFrame parent, List<GitignoreRule> rules) {
+            this.parent = parent;
+            this.rules = rules;
+        }
+
+        /**
+         * 按 git 的语义，从上级到下级、同一文件内从前到后，最后一条匹配的规则决定结果
+         */
+        boolean isIgnored(Path dir, Path fileName) {
+            boolean ignored = parent != null && parent.isIgnored(dir, fileName);
+            for (GitignoreRule rule : rules) {
+                if (rule.matches(dir, fileName)) {
+                    ignored = !rule.negated;
+                }
+            }
+            return ignored;
+        }
+    }
+
+    /**
+     * 单条 .gitignore 规则。只用于目录，因此文件专用的规则同样按名称匹配目录。
+     */
+    private static class GitignoreRule {
+        final Path base;
+        // 任意一个匹配即命中，见 expandDoubleStar
+        final List<PathMatcher> matchers;
+        final boolean negated;
+        // 含 / 的规则相对 .gitignore 所在目录匹配，否则匹配任意层级的目录名
+        final boolean anchored;
+
+        GitignoreRule(Path base, List<PathMatcher> matchers, boolean negated, boolean anchored) {
+            this.base = base;
+            this.matchers = matchers;
+            this.negated = negated;
+            this.anchored = anchored;
+        }
+
+        static GitignoreRule parse(Path base, String line) {
+            String p = line.strip();
+            if (p.isEmpty() || p.startsWith("#")) {
+                return null;
+            }
+            boolean negated = p.startsWith("!");
+            if (negated) {
+                p = p.substring(1);
+            } else if (p.startsWith("\\")) {
+                p = p.substring(1);
+            }
+            while (p.endsWith("/")) {
+                p = p.substring(0, p.length() - 1);
+            }
+            if (p.isEmpty()) {
+                return null;
+            }
+            // gitignore 不支持花括号，转义后交给 glob
+            p = p.replace("{", "\\{").replace("}", "\\}");
+            boolean anchored = p.contains("/");
+            if (p.startsWith("/")) {
+                p = p.substring(1);
+            } else if (p.startsWith("**/") && !p.substring(3).contains("/")) {
+                // **/name 与 name 相同，匹配任意层级的目录名
+                p = p.substring(3);
+                anchored = false;
+            }
+            List<PathMatcher> matchers = new ArrayList<>();
+            for (String glob : expandDoubleStar(p)) {
+                PathMatcher matcher = compile(glob);
+                if (matcher == null) return null;
+                matchers.add(matcher);
+            }
+            return new GitignoreRule(base, matchers, negated, anchored);
+        }
+
+        /**
+         * git 中开头的 **&#47; 和中间的 /**&#47; 可以匹配零层目录，而 Java glob 中 ** 两侧的 / 都必须出现，
+         * 因此每一处分别生成保留和去掉该层的写法，例如 a/**&#47;b 展开为 a/b 和 a/**&#47;b
+         */
+        static Set<String> expandDoubleStar(String p) {
+            Set<String> out = new LinkedHashSet<>();
+            if (p.startsWith("**/")) {
+                for (String rest : expandDoubleStar(p.substring(3))) {
+                    out.add(rest);
+                    out.add("**/" + rest);
+                }
+                return out;
+            }
+            int i = p.indexOf("/**/");
+            if (i < 0) {
+                out.add(p);
+                return out;
+            }
+            String head = p.substring(0, i);
+            for (String rest : expandDoubleStar(p.substring(i + 4))) {
+                out.add(head + "/" + rest);
+                out.add(head + "/**/" + rest);
+            }
+            return out;
+        }
+
+        boolean matches(Path dir, Path fileName) {
+            Path target;
+            if (!anchored) {
+                target = fileName;
+            } else if (dir.startsWith(base)) {
+                target = base.relativize(dir);
+            } else {
+                return false;
+            }
+            for (PathMatcher m : matchers) {
+                if (m.matches(target)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于 {@link ScanIndex} 的增量项目扫描。
+ * 目录的修改时间只在其直接子项增删时变化，因此修改时间未变的目录直接复用索引中的
+ * 项目标识和子目录列表，不再列目录、也不再逐个检查文件；只有发生变化的目录才重新列出。
+ * 每次扫描后将变化写回索引，并删除已不存在的目录记录。
+ */
+public class IncrementalProjectScanner {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalProjectScanner.class);
+
+    // 文件系统修改时间精度有限，修改时间与列目录时间过近的记录不可信，需要重新列出
+    private static final long RACY_WINDOW_MS = 2000;
+
+    private final ScanIndex index;
+
+    public IncrementalProjectScanner(ScanIndex index) {
+        this.index = index;
+    }
+
+    public List<File> scan(File root) {
+        return scan(root, IgnoreRules.defaults(), ScanMonitor.silent());
+    }
+
+    public List<File> scan(File root, IgnoreRules rules, ScanMonitor monitor) {
+        logger.info("开始增量扫描项目目录: {}", root.getAbsolutePath());
+        long start = System.currentTimeMillis();
+        List<File> projects = new ArrayList<>();
+        if (!root.isDirectory()) {
+            return projects;
+        }
+
+        Map<String, ScanIndex.Entry> cached = index.load(root.getAbsolutePath());
+        Map<String, ScanIndex.Entry> changed = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        visit(root, rules, cached, changed, visited, projects, monitor);
+
+        // 扫描被取消时未访问的目录不代表已删除，只写回已更新的记录
+        List<String> removed = new ArrayList<>();
+        if (!monitor.isCancelled()) {
+            for (String path : cached.keySet()) {
+                if (!visited.contains(path)) removed.add(path);
+            }
+        }
+        index.update(changed, removed);
+
+        logger.info("增量扫描完成，共找到 {} 个项目，复用 {} 个目录，重新列出 {} 个目录，耗时 {} ms",
+                projects.size(), visited.size() - changed.size(), changed.size(), System.currentTimeMillis() - start);
+        return projects;
+    }
+
+    private void visit(File dir, IgnoreRules rules, Map<String, ScanIndex.Entry> cached, Map<String, ScanIndex.Entry> changed,
+                       Set<String> visited, List<File> projects, ScanMonitor monitor) {
+        if (monitor.isCancelled()) {
+            return;
+        }
+        if (rules.isIgnored(dir)) {
+            logger.debug("跳过忽略的目录: {}", dir.getAbsolutePath());
+            return;
+        }
+        String path = dir.getAbsolutePath();
+        long mtime = dir.lastModified();
+        if (mtime == 0L) {
+            // 目录已被删除或无法访问
+            return;
+        }
+
+        ScanIndex.Entry entry = cached.get(path);
+        if (entry == null || entry.mtime != mtime || mtime >= entry.checkedAt - RACY_WINDOW_MS) {
+            entry = list(dir, mtime);
+            if (entry == null) {
+                return;
+            }
+            changed.put(path, entry);
+        }
+        visited.add(path);
+        monitor.directoryVisited();
+
+        if (entry.project) {
+            projects.add(dir);
+            monitor.projectFound(dir);
+            logger.info("添加项目目录: {}", path);
+        }
+        // 索引中保存的是未经过滤的子目录列表，忽略规则每次扫描时重新应用
+        IgnoreRules childRules = rules.enter(dir.toPath());
+        for (String child : entry.children) {
+            visit(new File(dir, child), childRules, cached, changed, visited, projects, monitor);
+        }
+    }
+
+    /**
+     * 重新列出目录内容，生成新的索引记录；无法列出时返回 null
+     */
+    private ScanIndex.Entry list(File dir, long mtime) {
+        long checkedAt = System.currentTimeMillis();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            logger.warn("无法列出目录内容: {}", dir.getAbsolutePath());
+            return null;
+        }
+        boolean project = false;
+        List<String> children = new ArrayList<>();
+        for (File f : files) {
+            if (!project && ProjectScanner.isProjectMarker(f.getName())) {
+                project = true;
+                logger.debug("识别到项目目录: {}", dir.getAbsolutePath());
+            }
+            if (f.isDirectory()) {
+                children.add(f.getName());
+            }
+        }
+        return new ScanIndex.Entry(mtime, checkedAt, project, children);
+    }
+}
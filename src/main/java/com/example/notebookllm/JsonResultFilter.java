@@ -0,0 +1,189 @@
+package com.example.notebookllm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 流式响应过滤器：逐个片段去掉 &lt;think&gt;...&lt;/think&gt; 块和 ``` 代码块标记，其余文本原样输出。
+ * 位于行首（前面只有空白）或紧跟代码块标记的 { 或 [ 被当作结果 JSON 的开始，跟踪括号深度（忽略字符串中的括号）；
+ * 闭合后能解析为对象或对象数组时 {@link #isComplete()} 返回 true，调用方据此提前结束读取，
+ * 不再等待模型生成结尾的说明文字。正文中的 [demo] 之类括号不会被当作结果，模型没有返回 JSON 时读到流结束为止。
+ * 标记可能被拆分到两个片段中，可能是标记开头的尾部文本会暂存到下一个片段再判断。
+ */
+public class JsonResultFilter {
+    private static final String THINK_OPEN = "<think>";
+    private static final String THINK_CLOSE = "</think>";
+    private static final String FENCE = "```";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private enum State { TEXT, THINK, JSON, DONE }
+
+    private State state = State.TEXT;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    // 当前位置位于行首（之前只有空白）或紧跟代码块标记
+    private boolean lineStart = true;
+    // 正在跟踪的 JSON 文本，闭合后检查是否为结果
+    private final StringBuilder candidate = new StringBuilder();
+    // 上一个片段末尾尚不能判断的文本
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * 重新开始，用于同一请求重试时
+     */
+    public void reset() {
+        state = State.TEXT;
+        depth = 0;
+        inString = false;
+        escaped = false;
+        lineStart = true;
+        candidate.setLength(0);
+        pending.setLength(0);
+    }
+
+    /**
+     * 处理一个片段，返回应当输出的文本（可能为空）
+     */
+    public String accept(String chunk) {
+        pending.append(chunk);
+        StringBuilder out = new StringBuilder(chunk.length());
+        int i = process(out, false);
+        pending.delete(0, i);
+        return out.toString();
+    }
+
+    /**
+     * 流结束时输出暂存的文本
+     */
+    public String finish() {
+        StringBuilder out = new StringBuilder();
+        process(out, true);
+        pending.setLength(0);
+        return out.toString();
+    }
+
+    /**
+     * 顶层 JSON 已经闭合
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /**
+     * 处理 pending 中的文本，返回已处理的字符数；end 为 false 时遇到不完整的标记停止
+     */
+    private int process(StringBuilder out, boolean end) {
+        int i = 0;
+        int n = pending.length();
+        while (i < n) {
+            char c = pending.charAt(i);
+            switch (state) {
+                case DONE:
+                    return n;
+                case THINK: {
+                    int close = pending.indexOf(THINK_CLOSE, i);
+                    if (close >= 0) {
+                        state = State.TEXT;
+                        lineStart = true;
+                        i = close + THINK_CLOSE.length();
+                        continue;
+                    }
+                    // 保留可能是结束标记开头的尾部
+                    return end ? n : Math.max(i, n - (THINK_CLOSE.length() - 1));
+                }
+                case JSON:
+                    out.append(c);
+                    candidate.append(c);
+                    i++;
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (c == '\\') {
+                            escaped = true;
+                        } else if (c == '"') {
+                            inString = false;
+                        }
+                    } else if (c == '"') {
+                        inString = true;
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if ((c == '}' || c == ']') && --depth == 0) {
+                        if (isResult(candidate)) {
+                            state = State.DONE;
+                            return n;
+                        }
+                        // 不是结果（例如行首的 [注意]），按普通文本继续
+                        state = State.TEXT;
+                        lineStart = false;
+                    }
+                    continue;
+                default:
+                    break;
+            }
+            // TEXT：识别标记和 JSON 的开始
+            if (c == '<' || c == '`') {
+                String marker = c == '<' ? THINK_OPEN : FENCE;
+                int match = matchLength(i, marker);
+                if (match == marker.length()) {
+                    i += match;
+                    if (c == '<') {
+                        state = State.THINK;
+                    } else {
+                        // 跳过代码块的语言标记，例如 ```json
+                        int lang = i;
+                        while (lang < n && Character.isLetterOrDigit(pending.charAt(lang))) lang++;
+                        if (lang == n && !end) return i - match;
+                        i = lang;
+                        lineStart = true;
+                    }
+                    continue;
+                }
+                if (i + match == n && !end) {
+                    // 片段在标记中间结束
+                    return i;
+                }
+            } else if ((c == '{' || c == '[') && lineStart) {
+                state = State.JSON;
+                depth = 0;
+                inString = false;
+                escaped = false;
+                candidate.setLength(0);
+                continue;
+            }
+            out.append(c);
+            if (c == '\n') {
+                lineStart = true;
+            } else if (!Character.isWhitespace(c)) {
+                lineStart = false;
+            }
+            i++;
+        }
+        return n;
+    }
+
+    /**
+     * 闭合的 JSON 是否为分析结果：单个对象，或批量分析返回的对象数组
+     */
+    private static boolean isResult(CharSequence json) {
+        try {
+            JsonNode node = MAPPER.readTree(json.toString());
+            if (node == null) return false;
+            if (node.isObject()) return true;
+            if (!node.isArray() || node.size() == 0) return false;
+            for (JsonNode item : node) {
+                if (!item.isObject()) return false;
+            }
+            return true;
+        } catch (JsonProcessingException ex) {
+            return false;
+        }
+    }
+
+    private int matchLength(int from, String marker) {
+        int k = 0;
+        while (k < marker.length() && from + k < pending.length() && pending.charAt(from + k) == marker.charAt(k)) k++;
+        return k;
+    }
+}
@@ -2,6 +2,14 @@ package com.example.notebookllm;
 
 import okhttp3.*;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -13,46 +21,132 @@ public class LLMClient {
     // 添加日志实例
     private static final Logger logger = LoggerFactory.getLogger(LLMClient.class);
     
-    private final String apiUrl;
     private final String apiKey;
     private final String model;
+    private final ChatOptions options;
     private final ObjectMapper mapper = new ObjectMapper();
-    private final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(300, java.util.concurrent.TimeUnit.SECONDS)
-            .writeTimeout(300, java.util.concurrent.TimeUnit.SECONDS)
-            .readTimeout(600, java.util.concurrent.TimeUnit.SECONDS)
-            .build();
+    // 所有实例共用连接池
+    private final OkHttpClient client = SharedHttpClient.get();
+    private final RetryPolicy retryPolicy;
+    // 同一组端点的所有客户端共用负载均衡器，每个端点有自己的熔断器
+    private final EndpointBalancer balancer;
+    // 响应缓存，未启用时为 null
+    private final ResponseCache cache;
+    // 为 false 时不读取缓存，总是调用模型（结果仍写入缓存）
+    private boolean reuseCachedResponses = true;
+    // 重试、熔断等提示信息的输出
+    private java.util.function.Consumer<String> noticeListener = text -> { };
+
+    /**
+     * 一次 HTTP 调用，失败时由 {@link #withRetry} 决定是否重试
+     */
+    private interface HttpCall<T> {
+        T execute(Endpoint endpoint) throws IOException;
+    }
 
     public LLMClient(String apiUrl, String apiKey) {
         this(apiUrl, apiKey, "gpt-3.5-turbo");
     }
 
     public LLMClient(String apiUrl, String apiKey, String model) {
-        this.apiUrl = apiUrl;
+        this(apiUrl, apiKey, model, new ChatOptions());
+    }
+
+    public LLMClient(String apiUrl, String apiKey, String model, ChatOptions options) {
+        this(Collections.singletonList(apiUrl), apiKey, model, options);
+    }
+
+    /**
+     * 使用多个提供相同模型的服务端点，请求在端点之间负载均衡，失败时切换到其他端点
+     */
+    public LLMClient(List<String> apiUrls, String apiKey, String model, ChatOptions options) {
+        this(apiUrls, apiKey, model, options, new ConfigManager());
+    }
+
+    /**
+     * 重试、熔断、负载均衡和响应缓存的设置从 cfg 读取
+     */
+    public LLMClient(List<String> apiUrls, String apiKey, String model, ChatOptions options, ConfigManager cfg) {
         this.apiKey = apiKey;
         this.model = model;
-        logger.info("初始化LLM客户端 - API URL: {}, Model: {}", apiUrl, model);
+        this.options = options;
+        this.retryPolicy = RetryPolicy.fromConfig(cfg);
+        this.balancer = EndpointBalancer.forUrls(apiUrls, cfg);
+        this.cache = ResponseCache.fromConfig(cfg);
+        logger.info("初始化LLM客户端 - API URL: {}, Model: {}", apiUrls, model);
+    }
+
+    /**
+     * 是否直接使用缓存的响应。需要重新生成结果时（关闭 analysis.skipUnchanged、重新生成使用手册）设为 false，
+     * 新的响应会替换缓存中的旧响应
+     */
+    public void setReuseCachedResponses(boolean reuseCachedResponses) {
+        this.reuseCachedResponses = reuseCachedResponses;
+    }
+
+    /**
+     * 设置重试等待、熔断暂停时的提示输出
+     */
+    public void setNoticeListener(java.util.function.Consumer<String> noticeListener) {
+        this.noticeListener = noticeListener;
+    }
+
+    /**
+     * 各端点的请求数、失败数、进行中请求数和平均延迟
+     */
+    public String describeEndpoints() {
+        return balancer.describe();
+    }
+
+    public int getEndpointCount() {
+        return balancer.getEndpoints().size();
     }
 
     public String analyze(String prompt) throws IOException {
         logger.debug("开始非流式分析，提示长度: {}", prompt.length());
         
-        MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
-        String bodyJson = "{\"model\":\"" + model + "\",\"messages\":[{\"role\":\"user\",\"content\":\"" + escapeJson(prompt) + "\"}]}";
-        RequestBody body = RequestBody.create(bodyJson, mediaType);
-        Request request = new Request.Builder()
-                .url(apiUrl)
+        String cacheKey = cache != null ? ResponseCache.key(model, prompt, options) : null;
+        if (cache != null && reuseCachedResponses) {
+            CompletionResult cached = cache.get(cacheKey);
+            if (cached != null) {
+                logger.info("非流式请求命中响应缓存，跳过模型调用");
+                return cached.content;
+            }
+        }
+
+        ChatRequestBody body = new ChatRequestBody(model, prompt, false, options);
+        String content = withRetry("非流式请求", endpoint -> execute(endpoint, body), () -> true, () -> { });
+        if (cache != null) {
+            cache.put(cacheKey, model, new CompletionResult(content));
+        }
+        return content;
+    }
+
+    private Request buildRequest(Endpoint endpoint, RequestBody body) {
+        return new Request.Builder()
+                .url(endpoint.url)
                 .addHeader("Authorization", "Bearer " + apiKey)
-                .addHeader("Content-Type", "application/json")
                 .post(body)
                 .build();
-                
-        logger.debug("发送HTTP请求到: {}", apiUrl);
+    }
+
+    /**
+     * 发送请求并记录到收到响应头为止的延迟
+     */
+    private Response send(Endpoint endpoint, RequestBody body) throws IOException {
+        long start = System.nanoTime();
+        Response response = client.newCall(buildRequest(endpoint, body)).execute();
+        endpoint.recordLatency((System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    private String execute(Endpoint endpoint, RequestBody body) throws IOException {
+        logger.debug("发送HTTP请求到: {}", endpoint.url);
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = send(endpoint, body)) {
             if (!response.isSuccessful()) {
                 logger.error("HTTP请求失败，状态码: {}", response.code());
-                throw new IOException("Unexpected code " + response);
+                throw httpError(response);
             }
             
             String respBody = response.body().string();
@@ -89,96 +183,218 @@ public class LLMClient {
     /**
      * 支持流式返回。会在当前线程同步阻塞读取流，并在接收到每个 content 片段时调用 onChunk。
      * 适用于 OpenAI Chat Completions 的 stream=true 返回格式（data: {...} 每行）。
+     * 返回由所有片段拼接而成的完整结果，以及 finish_reason 和 usage（服务端支持 stream_options 时）。
+     * 读取流失败时抛出 IOException，调用方可据此回退到非流式请求。
+     * 命中响应缓存时不调用模型，缓存的内容作为一个片段交给 onChunk。
      */
-    public void analyzeStream(String prompt, java.util.function.Consumer<String> onChunk) throws IOException {
+    public CompletionResult analyzeStream(String prompt, java.util.function.Consumer<String> onChunk) throws IOException {
+        return analyzeStream(prompt, onChunk, null);
+    }
+
+    /**
+     * 同 {@link #analyzeStream(String, java.util.function.Consumer)}，片段先经过 filter 再输出和拼接；
+     * filter 判断 JSON 结果已经完整时立即断开连接，不再等待模型生成剩余内容
+     */
+    public CompletionResult analyzeStream(String prompt, java.util.function.Consumer<String> onChunk, JsonResultFilter filter) throws IOException {
         logger.debug("开始流式分析，提示长度: {}", prompt.length());
         
-        MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
-        String bodyJson = "{\"model\":\"" + model + "\",\"messages\":[{\"role\":\"user\",\"content\":\"" + escapeJson(prompt) + "\"}],\"stream\":true}";
-        RequestBody body = RequestBody.create(bodyJson, mediaType);
-        Request request = new Request.Builder()
-                .url(apiUrl)
-                .addHeader("Authorization", "Bearer " + apiKey)
-                .addHeader("Content-Type", "application/json")
-                .post(body)
-                .build();
+        String cacheKey = cache != null ? ResponseCache.key(model, prompt, options) : null;
+        if (cache != null && reuseCachedResponses) {
+            CompletionResult cached = cache.get(cacheKey);
+            if (cached != null) {
+                logger.info("流式请求命中响应缓存，跳过模型调用");
+                if (filter != null) {
+                    filter.reset();
+                    cached.content = filter.accept(cached.content) + filter.finish();
+                }
+                onChunk.accept(cached.content);
+                return cached;
+            }
+        }
+
+        ChatRequestBody body = new ChatRequestBody(model, prompt, true, options);
 
-        logger.debug("发送流式HTTP请求到: {}", apiUrl);
+        // 已经输出过片段后失败不能重试，否则界面上会出现重复内容
+        boolean[] delivered = {false};
+        boolean[] throttled = {false};
+        CompletionResult result = withRetry("流式请求", endpoint -> executeStream(endpoint, body, filter, chunk -> {
+            delivered[0] = true;
+            onChunk.accept(chunk);
+        }), () -> !delivered[0], () -> throttled[0] = true);
+        result.throttled = throttled[0];
+        // 没有收到完成信号的响应可能不完整，不缓存
+        if (cache != null && result.isComplete()) {
+            cache.put(cacheKey, model, result);
+        }
+        return result;
+    }
+
+    private CompletionResult executeStream(Endpoint endpoint, RequestBody body, JsonResultFilter filter,
+                                           java.util.function.Consumer<String> onChunk) throws IOException {
+        logger.debug("发送流式HTTP请求到: {}", endpoint.url);
                 
-        try (Response response = client.newCall(request).execute()) {
+        StringBuilder content = new StringBuilder();
+        CompletionResult result = new CompletionResult("");
+        try (Response response = send(endpoint, body)) {
             if (!response.isSuccessful()) {
                 logger.error("流式HTTP请求失败，状态码: {}", response.code());
-                throw new IOException("Unexpected code " + response);
+                throw httpError(response);
             }
             
             okhttp3.ResponseBody rb = response.body();
             if (rb == null) {
                 logger.warn("响应体为空");
-                return;
+                return result;
             }
             
             try (okio.BufferedSource src = rb.source()) {
+                ChatStreamDecoder decoder = new ChatStreamDecoder(src, result);
+                if (filter != null) filter.reset();
                 int chunkCount = 0;
-                while (!src.exhausted()) {
-                    String line;
-                    try {
-                        line = src.readUtf8Line();
-                    } catch (Exception e) {
-                        logger.error("读取响应流时发生异常", e);
+                String c;
+                while ((c = decoder.nextContent()) != null) {
+                    if (filter != null) c = filter.accept(c);
+                    if (!c.isEmpty()) {
+                        content.append(c);
+                        onChunk.accept(c);
+                        chunkCount++;
+                    }
+                    if (filter != null && filter.isComplete()) {
+                        // 关闭响应即断开连接，服务端随之停止生成
+                        result.stoppedEarly = true;
+                        logger.debug("JSON 结果已完整，提前结束流式读取");
                         break;
                     }
-                    if (line == null) break;
-                    line = line.trim();
-                    if (line.isEmpty()) continue;
-                    // OpenAI stream lines begin with "data: "
-                    if (line.startsWith("data: ")) {
-                        String data = line.substring(6).trim();
-                        if ("[DONE]".equals(data)) {
-                            logger.debug("收到流结束标记[DONE]");
-                            break;
-                        }
-                        try {
-                            JsonNode root = mapper.readTree(data);
-                            if (root.has("choices")) {
-                                JsonNode choices = root.get("choices");
-                                if (choices.isArray() && choices.size() > 0) {
-                                    JsonNode first = choices.get(0);
-                                    // Chat Completions v1 stream uses delta.content
-                                    if (first.has("delta") && first.get("delta").has("content")) {
-                                        String c = first.get("delta").get("content").asText();
-                                        if (c != null && !c.isEmpty()) {
-                                            onChunk.accept(c);
-                                            chunkCount++;
-                                        }
-                                    } else if (first.has("message") && first.get("message").has("content")) {
-                                        String c = first.get("message").get("content").asText();
-                                        if (c != null && !c.isEmpty()) {
-                                            onChunk.accept(c);
-                                            chunkCount++;
-                                        }
-                                    } else if (first.has("text")) {
-                                        String c = first.get("text").asText();
-                                        if (c != null && !c.isEmpty()) {
-                                            onChunk.accept(c);
-                                            chunkCount++;
-                                        }
-                                    }
-                                }
-                            }
-                        } catch (Exception ex) {
-                            // 不再转发原始数据，避免混乱
-                            // 记录日志或静默处理异常
-                            logger.warn("解析流数据块时发生异常: {}", data, ex);
-                        }
+                }
+                if (filter != null && !result.stoppedEarly) {
+                    String rest = filter.finish();
+                    if (!rest.isEmpty()) {
+                        content.append(rest);
+                        onChunk.accept(rest);
+                    }
+                }
+                result.content = content.toString();
+                logger.debug("流式分析完成，共处理 {} 个事件、{} 个内容片段，结果: {}", decoder.getEventCount(), chunkCount, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按重试策略执行调用：每次调用前由负载均衡器选择端点并经过该端点的熔断器，
+     * 失败后优先切换到其他可用端点，没有其他端点时按退避时间等待后重试。
+     * 失败导致熔断时不消耗重试次数；所有端点都熔断时调用等待最早恢复的端点，批量分析随之暂停而不是跳过后续项目。
+     * canRetry 返回 false 时（例如流式响应已经输出了部分内容）直接抛出异常。
+     */
+    private <T> T withRetry(String what, HttpCall<T> call, BooleanSupplier canRetry, Runnable onThrottled) throws IOException {
+        int attempt = 0;
+        // 本次调用中失败过的端点，重试时排在最后
+        Set<Endpoint> failed = new HashSet<>();
+        // 熔断暂停不计入重试次数，但总暂停时间有上限：端点持续不可用时放弃本次调用，批量分析继续下一个项目
+        long pauseDeadline = 0;
+        while (true) {
+            Endpoint endpoint;
+            try {
+                endpoint = balancer.acquire(failed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待熔断恢复时被中断");
+            }
+            attempt++;
+            endpoint.begin();
+            boolean ended = false;
+            try {
+                T result = call.execute(endpoint);
+                ended = true;
+                endpoint.end(true, null);
+                endpoint.breaker.recordSuccess();
+                return result;
+            } catch (IOException e) {
+                ended = true;
+                endpoint.end(false, e.getMessage());
+                boolean retryable = retryPolicy.isRetryable(e);
+                if (retryable) {
+                    endpoint.breaker.recordFailure();
+                    failed.add(endpoint);
+                } else {
+                    endpoint.breaker.recordNeutral();
+                }
+                if (e instanceof LLMHttpException && ((LLMHttpException) e).isOverloaded()) {
+                    onThrottled.run();
+                }
+                if (!retryable || !canRetry.getAsBoolean()) {
+                    throw e;
+                }
+                long paused = balancer.getPauseMillis();
+                if (paused > 0) {
+                    long now = System.currentTimeMillis();
+                    if (pauseDeadline == 0) {
+                        pauseDeadline = now + retryPolicy.getMaxPauseMillis();
                     }
-                    // 忽略非 data 行，不再传递给 onChunk
+                    if (now + paused > pauseDeadline) {
+                        logger.error("{}失败：{}，所有端点持续熔断，超过暂停上限 {} 秒，放弃本次调用",
+                                what, e.getMessage(), retryPolicy.getMaxPauseMillis() / 1000);
+                        noticeListener.accept("\n模型服务持续不可用（" + e.getMessage() + "），暂停时间超过上限，放弃本项目\n");
+                        throw e;
+                    }
+                    attempt--;
+                    logger.warn("{}失败：{}，所有端点已熔断，{} ms 后试探恢复", what, e.getMessage(), paused);
+                    noticeListener.accept("\n模型服务暂不可用（" + e.getMessage() + "），分析暂停约 "
+                            + (paused + 999) / 1000 + " 秒，恢复后继续\n");
+                    continue;
+                }
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    throw e;
+                }
+                if (balancer.hasAlternative(failed)) {
+                    // 还有其他可用端点时立即切换，不做退避等待
+                    logger.warn("{}在端点 {} 失败：{}，切换到其他端点", what, endpoint.url, e.getMessage());
+                    noticeListener.accept("\n" + what + "失败：" + e.getMessage() + "，切换到其他端点重试\n");
+                    continue;
+                }
+                long delay = retryPolicy.delayMillis(attempt, e);
+                logger.warn("{}失败（第 {} 次）：{}，{} ms 后重试", what, attempt, e.getMessage(), delay);
+                noticeListener.accept("\n" + what + "失败：" + e.getMessage() + "，" + (delay + 999) / 1000 + " 秒后重试\n");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("重试等待时被中断");
+                }
+            } finally {
+                if (!ended) {
+                    // 输出回调或解析抛出的运行时异常与端点可用性无关，只归还进行中计数和熔断试探名额
+                    endpoint.end(false, "调用异常中断");
+                    endpoint.breaker.recordNeutral();
                 }
-                logger.debug("流式分析完成，共处理 {} 个数据块", chunkCount);
             }
         }
     }
 
-    private String escapeJson(String s) {
-        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    private static LLMHttpException httpError(Response response) {
+        return new LLMHttpException(response.code(), "Unexpected code " + response,
+                parseRetryAfter(response.header("Retry-After")));
+    }
+
+    /**
+     * Retry-After 可以是秒数，也可以是 HTTP 日期
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String v = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(v)) * 1000;
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，按 HTTP 日期解析
+        }
+        try {
+            long at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logger.debug("无法解析 Retry-After: {}", v);
+            return -1;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+
+/**
+ * 模型服务返回非 2xx 状态码时抛出，携带状态码和 Retry-After 供调用方区分限流、过载等情况
+ */
+public class LLMHttpException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    public LLMHttpException(int statusCode, String message) {
+        this(statusCode, message, -1);
+    }
+
+    public LLMHttpException(int statusCode, String message, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 服务端通过 Retry-After 要求的等待时间，没有该响应头时为 -1
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * 服务端限流（429）或暂时不可用（503）
+     */
+    public boolean isOverloaded() {
+        return statusCode == 429 || statusCode == 503;
+    }
+}
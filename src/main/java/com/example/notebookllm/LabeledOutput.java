@@ -0,0 +1,40 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.util.function.Consumer;
+
+/**
+ * 并发分析时多个项目的输出交错到同一个输出框，给每一行加上项目名前缀。
+ * 输出切换到另一个项目时，如果上一个项目停在行中间，先换行再输出。
+ */
+public class LabeledOutput implements AnalysisPipeline.Listener {
+    private final Consumer<String> sink;
+    private String lastProject;
+    private boolean atLineStart = true;
+
+    public LabeledOutput(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public synchronized void output(String projectPath, String text) {
+        if (text.isEmpty()) return;
+        StringBuilder sb = new StringBuilder(text.length() + 32);
+        if (lastProject != null && !lastProject.equals(projectPath) && !atLineStart) {
+            sb.append('\n');
+            atLineStart = true;
+        }
+        lastProject = projectPath;
+        String label = "[" + (projectPath == null ? "-" : new File(projectPath).getName()) + "] ";
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (atLineStart && c != '\n') {
+                sb.append(label);
+                atLineStart = false;
+            }
+            sb.append(c);
+            if (c == '\n') atLineStart = true;
+        }
+        sink.accept(sb.toString());
+    }
+}
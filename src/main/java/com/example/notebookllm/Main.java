@@ -26,6 +26,12 @@ public class Main {
     private static final Color LABEL_TEXT_COLOR = new Color(70, 70, 70); // 标签文字颜色
     private static final Color BORDER_COLOR = new Color(220, 220, 220);
     
+    // 分析提示词模板的版本，修改模板后需要递增，使旧的内容指纹失效
+    private static final String PROMPT_VERSION = "2";
+    // 分析结果的 JSON 字段说明和要求，单个项目和合并请求共用
+    private static final String ANALYSIS_SCHEMA = "{\"project_name\": \"项目名称\", \"summary\": \"项目概述\", \"modules\": [{\"name\":..., \"description\":...}], \"issues\": [\"...\"], \"suggestions\": [\"...\"], \"top_files\": [\"path\"], \"risk_level\": \"low|medium|high\"}\n";
+    private static final String ANALYSIS_REQUIREMENTS = "要求：中文输出；项目名称应该是中文且有意义；摘要不超过200字；modules 不超过10项；issues/suggestions 每项不超过100字；总体不超过2000字。\n";
+    
     public static void main(String[] args) {
         // 设置系统外观
         try {
@@ -34,6 +40,9 @@ public class Main {
             logger.warn("无法设置系统外观，使用默认外观", e);
         }
         
+        // 界面初始化期间在后台建立到模型服务的连接
+        SharedHttpClient.warmUp(new ConfigManager());
+        
         SwingUtilities.invokeLater(() -> {
             logger.info("启动NotebookLLM应用程序");
             
@@ -75,8 +84,27 @@ public class Main {
             JList<String> projectList = new JList<>(listModel);
             projectList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
             styleListComponent(projectList);
+            // 双击项目查看它最近一次的分析结果
+            projectList.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseClicked(java.awt.event.MouseEvent e) {
+                    if (e.getClickCount() != 2) return;
+                    int index = projectList.locationToIndex(e.getPoint());
+                    if (index < 0 || !projectList.getCellBounds(index, index).contains(e.getPoint())) return;
+                    showLatestAnalysis(frame, listModel.getElementAt(index));
+                }
+            });
 
-            JTextArea output = new JTextArea();
+            // 流式输出按帧合并后显示，较早的内容裁掉，完整输出写入 logs 目录
+            ConfigManager uiCfg = new ConfigManager();
+            OutputConsole output = new OutputConsole(uiCfg.getOutputMaxChars(), uiCfg.getOutputFramesPerSecond(), uiCfg.getOutputKeepFiles());
+            frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent e) {
+                    // EXIT_ON_CLOSE 在监听器之后退出，先把完整输出写入文件
+                    output.close();
+                }
+            });
             output.setEditable(false);
             output.setFont(new Font("微软雅黑", Font.PLAIN, 12));
             output.setLineWrap(true);
@@ -92,6 +120,21 @@ public class Main {
             JButton historyBtn = createStyledButton("查看历史");
             JButton exitBtn = createStyledButton("退出");
 
+            JButton cancelScanBtn = createStyledButton("取消扫描");
+            cancelScanBtn.setEnabled(false);
+            JLabel statusLabel = new JLabel(" ");
+            statusLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+            statusLabel.setForeground(LABEL_TEXT_COLOR);
+            statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 5));
+
+            // 批量分析时实时显示结构化结果
+            LiveResultPanel livePanel = new LiveResultPanel();
+
+            // 当前的目录监听器，重新扫描时替换
+            ProjectWatcher[] watcherHolder = new ProjectWatcher[1];
+            // 当前正在进行的扫描
+            ScanMonitor[] scanHolder = new ScanMonitor[1];
+
             selectBtn.addActionListener(e -> {
                 logger.debug("用户点击选择文件夹按钮");
                 JFileChooser chooser = new JFileChooser();
@@ -102,10 +145,25 @@ public class Main {
                     logger.info("用户选择了目录: {}", dir.getAbsolutePath());
                     output.setText("扫描中: " + dir.getAbsolutePath() + "\n");
                     listModel.clear();
-                    java.util.List<File> projects = ProjectScanner.scanProjects(dir);
-                    for (File p : projects) listModel.addElement(p.getAbsolutePath());
-                    output.append("扫描完成，发现 " + projects.size() + " 个项目\n");
-                    logger.info("扫描完成，共发现 {} 个项目", projects.size());
+                    if (watcherHolder[0] != null) {
+                        watcherHolder[0].stop();
+                        watcherHolder[0] = null;
+                    }
+                    selectBtn.setEnabled(false);
+                    cancelScanBtn.setEnabled(true);
+                    scanHolder[0] = scanProjectsAsync(dir, listModel, output, statusLabel, () -> {
+                        selectBtn.setEnabled(true);
+                        cancelScanBtn.setEnabled(false);
+                        scanHolder[0] = null;
+                    }, watcherHolder);
+                }
+            });
+
+            cancelScanBtn.addActionListener(e -> {
+                logger.debug("用户点击取消扫描按钮");
+                if (scanHolder[0] != null) {
+                    scanHolder[0].cancel();
+                    cancelScanBtn.setEnabled(false);
                 }
             });
 
@@ -118,7 +176,7 @@ public class Main {
                     return;
                 }
                 logger.info("开始分析 {} 个项目", sel.size());
-                analyzeProjectsAsync(sel, output);
+                analyzeProjectsAsync(sel, output, livePanel);
             });
 
             analyzeAllBtn.addActionListener(e -> {
@@ -131,7 +189,7 @@ public class Main {
                     return;
                 }
                 logger.info("开始分析全部 {} 个项目", all.size());
-                analyzeProjectsAsync(all, output);
+                analyzeProjectsAsync(all, output, livePanel);
             });
 
             historyBtn.addActionListener(e -> {
@@ -156,6 +214,7 @@ public class Main {
                 
                 if (option == JOptionPane.YES_OPTION) {
                     logger.info("用户确认退出应用程序");
+                    output.close();
                     System.exit(0);
                 } else {
                     logger.debug("用户取消退出操作");
@@ -167,6 +226,7 @@ public class Main {
             topPanel.setBackground(BACKGROUND_COLOR);
             topPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
             topPanel.add(selectBtn);
+            topPanel.add(cancelScanBtn);
             topPanel.add(analyzeBtn);
             topPanel.add(analyzeAllBtn);
             topPanel.add(historyBtn);
@@ -179,13 +239,18 @@ public class Main {
             JScrollPane leftScrollPane = new JScrollPane(projectList);
             leftScrollPane.getViewport().setBackground(PANEL_COLOR);
             split.setLeftComponent(leftScrollPane);
-            split.setRightComponent(scroll);
+            JTabbedPane outputTabs = new JTabbedPane();
+            outputTabs.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+            outputTabs.addTab("输出", scroll);
+            outputTabs.addTab("实时结果", livePanel);
+            split.setRightComponent(outputTabs);
             split.setDividerLocation(400);
             split.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
             styleSplitPane(split);
 
             mainPanel.add(topPanel, BorderLayout.NORTH);
             mainPanel.add(split, BorderLayout.CENTER);
+            mainPanel.add(statusLabel, BorderLayout.SOUTH);
             
             frame.add(mainPanel, BorderLayout.CENTER);
             frame.setVisible(true);
@@ -194,6 +259,120 @@ public class Main {
         });
     }
     
+    /**
+     * 在后台线程扫描项目，发现的项目增量加入列表，状态栏显示扫描进度。
+     * 返回的监视器可用于取消扫描；扫描结束后在事件线程调用 onFinished。
+     */
+    private static ScanMonitor scanProjectsAsync(File dir, DefaultListModel<String> listModel, JTextArea output,
+                                                 JLabel statusLabel, Runnable onFinished, ProjectWatcher[] watcherHolder) {
+        logger.debug("开始异步扫描项目目录: {}", dir.getAbsolutePath());
+        ScanWorker worker = new ScanWorker(dir, listModel, output, statusLabel, onFinished, watcherHolder);
+        worker.execute();
+        return worker.monitor;
+    }
+
+    /**
+     * 项目扫描后台任务：扫描引擎发现的项目通过 publish 增量送到事件线程
+     */
+    private static class ScanWorker extends SwingWorker<java.util.List<File>, File> implements ScanMonitor.Listener {
+        private final File dir;
+        private final DefaultListModel<String> listModel;
+        private final JTextArea output;
+        private final JLabel statusLabel;
+        private final Runnable onFinished;
+        private final ProjectWatcher[] watcherHolder;
+        private final ConfigManager cfg = new ConfigManager();
+        final ScanMonitor monitor = new ScanMonitor(this);
+
+        ScanWorker(File dir, DefaultListModel<String> listModel, JTextArea output, JLabel statusLabel,
+                   Runnable onFinished, ProjectWatcher[] watcherHolder) {
+            this.dir = dir;
+            this.listModel = listModel;
+            this.output = output;
+            this.statusLabel = statusLabel;
+            this.onFinished = onFinished;
+            this.watcherHolder = watcherHolder;
+        }
+
+        @Override
+        public void projectFound(File project) {
+            publish(project);
+        }
+
+        @Override
+        public void progress(long directoriesVisited, double directoriesPerSecond) {
+            String text = String.format("扫描中：已访问 %d 个目录（%.0f 个/秒）", directoriesVisited, directoriesPerSecond);
+            SwingUtilities.invokeLater(() -> statusLabel.setText(text));
+        }
+
+        @Override
+        protected java.util.List<File> doInBackground() {
+            return ProjectScanner.scanProjects(dir, cfg, monitor);
+        }
+
+        @Override
+        protected void process(java.util.List<File> chunks) {
+            // 扫描结束后由 done() 按最终结果重建列表，迟到的片段直接丢弃
+            if (isDone()) return;
+            for (File p : chunks) listModel.addElement(p.getAbsolutePath());
+        }
+
+        @Override
+        protected void done() {
+            onFinished.run();
+            java.util.List<File> projects;
+            try {
+                projects = get();
+            } catch (Exception ex) {
+                output.append("扫描失败：" + ex.getMessage() + "\n");
+                statusLabel.setText("扫描失败");
+                logger.error("扫描项目目录失败: {}", dir.getAbsolutePath(), ex);
+                return;
+            }
+            String stats = String.format("共访问 %d 个目录（%.0f 个/秒）",
+                    monitor.getDirectoriesVisited(), monitor.getDirectoriesPerSecond());
+            // 增量发布的顺序取决于扫描引擎，扫描结束后按最终结果的确定顺序重建列表
+            listModel.clear();
+            for (File p : projects) listModel.addElement(p.getAbsolutePath());
+            if (monitor.isCancelled()) {
+                output.append("扫描已取消，已发现 " + projects.size() + " 个项目\n");
+                statusLabel.setText("扫描已取消，" + stats);
+                logger.info("扫描已取消，已发现 {} 个项目", projects.size());
+                return;
+            }
+            output.append("扫描完成，发现 " + projects.size() + " 个项目\n");
+            statusLabel.setText("扫描完成，" + stats);
+            logger.info("扫描完成，共发现 {} 个项目", projects.size());
+            if (cfg.isScanWatch()) {
+                watcherHolder[0] = startProjectWatcher(dir, IgnoreRules.fromConfig(cfg, dir), projects, listModel, output);
+            }
+        }
+    }
+
+    /**
+     * 监听扫描根目录，项目出现或消失时批量更新项目列表
+     */
+    private static ProjectWatcher startProjectWatcher(File dir, IgnoreRules rules, java.util.List<File> projects,
+                                                      DefaultListModel<String> listModel, JTextArea output) {
+        try {
+            ProjectWatcher watcher = new ProjectWatcher(dir, rules, projects, (added, removed) ->
+                SwingUtilities.invokeLater(() -> {
+                    for (File p : removed) listModel.removeElement(p.getAbsolutePath());
+                    for (File p : added) {
+                        if (!listModel.contains(p.getAbsolutePath())) listModel.addElement(p.getAbsolutePath());
+                    }
+                    output.append("检测到项目变化：新增 " + added.size() + " 个，移除 " + removed.size() + " 个\n");
+                }));
+            watcher.start();
+            output.append("已开启目录监听，项目变化将自动更新\n");
+            return watcher;
+        } catch (Exception ex) {
+            output.append("开启目录监听失败：" + ex.getMessage() + "\n");
+            logger.error("开启目录监听失败: {}", dir.getAbsolutePath(), ex);
+            return null;
+        }
+    }
+
     /**
      * 创建样式化按钮
      */
@@ -261,190 +440,170 @@ public class Main {
         splitPane.setBorder(BorderFactory.createEmptyBorder());
     }
 
-    private static void analyzeProjectsAsync(java.util.List<String> projects, JTextArea output) {
+    private static void analyzeProjectsAsync(java.util.List<String> projects, OutputConsole output, LiveResultPanel live) {
         logger.debug("开始异步分析项目任务");
-        SwingWorker<Void, String> worker = new SwingWorker<>() {
+        live.clear();
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() throws Exception {
                 ConfigManager cfg = new ConfigManager();
-                String apiUrl = cfg.get("api.url", System.getenv().getOrDefault("OPENAI_API_URL", cfg.getDefaultApiUrl()));
+                java.util.List<String> apiUrls = cfg.getApiUrls();
                 String apiKey = cfg.get("api.key", System.getenv().getOrDefault("OPENAI_API_KEY", "sk-xxx"));
                 String model = cfg.getModel();
                 
-                logger.info("使用API配置 - URL: {}, Model: {}", apiUrl, model);
+                logger.info("使用API配置 - URL: {}, Model: {}", apiUrls, model);
                 
-                if (apiUrl.isEmpty() || apiKey.isEmpty()) {
+                if (apiUrls.isEmpty() || apiKey.isEmpty()) {
                     String msg = "未设置 API 地址或 Key，跳过调用大模型（请在设置中填写）。\n";
-                    publish(msg);
+                    output.write(msg);
                     logger.warn(msg);
                     return null;
                 }
                 
-                LLMClient client = new LLMClient(apiUrl, apiKey, model);
+                LLMClient client = new LLMClient(apiUrls, apiKey, model, ChatOptions.fromConfig(cfg));
                 HistoryManager hm = new HistoryManager();
+                boolean skipUnchanged = cfg.isSkipUnchangedProjects();
+                // 不跳过未变化的项目时也不使用缓存的响应，保证重新调用模型
+                client.setReuseCachedResponses(skipUnchanged);
+                ContextPacker packer = new ContextPacker(TokenEstimator.fromConfig(cfg));
+                int tokenBudget = cfg.getPromptTokenBudget();
                 
-                for (String p : projects) {
-                    String msg = "分析：" + p + "\n";
-                    publish(msg);
-                    logger.info("开始分析项目: {}", p);
-                    
-                    try {
-                        String prompt = buildPromptForProject(new File(p));
-                        logger.debug("为项目 {} 构建提示完成，提示长度: {}", p, prompt.length());
-                        
-                        StringBuilder streamed = new StringBuilder();
-                        // Stream display
-                        try {
-                            client.analyzeStream(prompt, chunk -> {
-                                streamed.append(chunk);
-                                publish(chunk);
-                            });
-                            logger.debug("项目 {} 流式分析完成", p);
-                        } catch (Exception ex) {
-                            String errorMsg = "流式获取失败：" + ex.getMessage() + "\n";
-                            publish(errorMsg);
-                            logger.error("项目 {} 流式分析失败", p, ex);
-                        }
-
-                        // 请求一次非流式完整响应以获得最终 JSON
-                        String finalResp = null;
-                        try {
-                            finalResp = client.analyze(prompt);
-                            logger.debug("项目 {} 非流式分析完成", p);
-                        } catch (Exception ex) {
-                            String errorMsg = "获取最终响应失败：" + ex.getMessage() + "\n";
-                            publish(errorMsg);
-                            logger.error("项目 {} 非流式分析失败", p, ex);
-                        }
-
-                        String toSave = finalResp != null ? finalResp : streamed.toString();
-                        logger.debug("项目 {} 响应内容长度: {}", p, toSave.length());
-
-                        // 尝试解析为 JSON，如果成功则美化，否则按原样保存
-                        try {
-                            //去除对象中的<think>标签
-                            toSave= toSave
-                                    .replaceAll("<think>[\\s\\S]*?</think>", "")   // 去掉 <think>
-                                    .replaceAll("```[a-zA-Z0-9]*", "")
-                                    .replaceAll("```", "");
-                            toSave = toSave.trim();
-                            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                            Object json = mapper.readValue(toSave, Object.class);
-                            String pretty = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
-                            String resultMsg = "\n最终结果（已解析为 JSON）：\n" + pretty + "\n\n";
-                            publish(resultMsg);
-                            logger.debug("项目 {} 响应为有效JSON格式", p);
-                            
-                            // 使用正确的构造函数保存结果，确保项目名称和描述能从分析结果中提取
-                            AnalysisResult ar = new AnalysisResult(0, p, toSave, java.time.LocalDateTime.now());
-                            hm.save(ar);
-                            logger.info("项目 {} 分析结果已保存到数据库", p);
-                        } catch (Exception ex) {
-                            ex.printStackTrace();
-                            // 不是合法 JSON，保存原始文本
-                            String resultMsg = "\n最终结果（非 JSON 文本）：\n" + toSave + "\n\n";
-                            publish(resultMsg);
-                            logger.debug("项目 {} 响应为非JSON格式", p);
-                            
-                            // 使用正确的构造函数保存结果，确保项目名称和描述能从分析结果中提取
-                            AnalysisResult ar = new AnalysisResult(0, p, toSave, java.time.LocalDateTime.now());
-                            hm.save(ar);
-                            logger.info("项目 {} 分析结果已保存到数据库", p);
-                        }
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                        String errorMsg = "分析失败：" + ex.getMessage() + "\n";
-                        publish(errorMsg);
-                        logger.error("项目 {} 分析过程中发生错误", p, ex);
+                // 提示词构建、模型调用、结果解析和入库分阶段流水线执行
+                ConcurrencyLimiter limiter = new ConcurrencyLimiter(cfg.getAnalysisConcurrency(),
+                        cfg.isAnalysisAutoTune() ? cfg.getAnalysisMaxConcurrency() : cfg.getAnalysisConcurrency(),
+                        cfg.isAnalysisAutoTune());
+                // 可能有多个项目同时输出时，按行标注项目名
+                AnalysisPipeline.Listener text = limiter.getMaxLimit() > 1
+                        ? new LabeledOutput(output::write)
+                        : (project, t) -> output.write(t);
+                // 模型响应同时交给实时结果面板增量解析
+                AnalysisPipeline.Listener listener = new AnalysisPipeline.Listener() {
+                    @Override
+                    public void output(String projectPath, String t) {
+                        text.output(projectPath, t);
+                    }
+
+                    @Override
+                    public void resultStarted(String projectPath) {
+                        live.start(projectPath);
+                    }
+
+                    @Override
+                    public void resultChunk(String projectPath, String chunk) {
+                        live.feed(projectPath, chunk);
                     }
+                };
+                AnalysisPipeline pipeline = new AnalysisPipeline(client, hm,
+                        dir -> buildPromptForProject(dir, model, packer, tokenBudget),
+                        skipUnchanged, cfg.getAnalysisQueueCapacity(), limiter, listener);
+                pipeline.setStopAfterJson(cfg.isAnalysisStopAfterJson());
+                if (cfg.getAnalysisBatchMaxProjects() > 1) {
+                    // 内容很少的项目合并到一个请求中分析
+                    pipeline.setBatching(cfg.getAnalysisBatchSmallProjectTokens(), tokenBudget, cfg.getAnalysisBatchMaxProjects(),
+                            prompts -> buildBatchPrompt(prompts, packer.getEstimator(), tokenBudget));
                 }
+                pipeline.run(projects);
                 return null;
             }
 
-            @Override
-            protected void process(java.util.List<String> chunks) {
-                for (String s : chunks) output.append(s);
-            }
-
             @Override
             protected void done() {
-                output.append("分析任务完成。\n");
-                logger.info("项目分析任务完成");
+                try {
+                    get();
+                    output.append("分析任务完成。\n");
+                    logger.info("项目分析任务完成");
+                } catch (java.util.concurrent.ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    output.append("分析任务失败：" + cause.getMessage() + "\n");
+                    logger.error("项目分析任务失败", cause);
+                } catch (InterruptedException | java.util.concurrent.CancellationException ex) {
+                    output.append("分析任务已取消。\n");
+                    logger.info("项目分析任务已取消");
+                }
+                output.flushTranscript();
             }
         };
         worker.execute();
     }
 
-    private static String buildPromptForProject(File projectDir) {
+    /**
+     * 构建项目分析提示词，在 token 预算内按优先级装入项目文件，同时对每个片段计算内容指纹
+     */
+    static ProjectPrompt buildPromptForProject(File projectDir, String model, ContextPacker packer, int tokenBudget) {
         logger.debug("开始为项目 {} 构建提示", projectDir.getAbsolutePath());
         
+        TokenEstimator estimator = packer.getEstimator();
+        ProjectFingerprint fingerprint = new ProjectFingerprint(model, PROMPT_VERSION);
+        java.util.Map<String, Integer> sectionTokens = new java.util.LinkedHashMap<>();
         StringBuilder sb = new StringBuilder();
         // Header with intent and output schema
         sb.append("你是一个代码审查与项目分析助手。不要思考，直接分析下述项目并以严格的 JSON 格式返回结果。不要输出任何额外的文本。JSON 字段说明：\n");
-        sb.append("{\"project_name\": \"项目名称\", \"summary\": \"项目概述\", \"modules\": [{\"name\":..., \"description\":...}], \"issues\": [\"...\"], \"suggestions\": [\"...\"], \"top_files\": [\"path\"], \"risk_level\": \"low|medium|high\"}\n");
-        sb.append("要求：中文输出；项目名称应该是中文且有意义；摘要不超过200字；modules 不超过10项；issues/suggestions 每项不超过100字；总体不超过2000字。\n");
+        sb.append(ANALYSIS_SCHEMA);
+        sb.append(ANALYSIS_REQUIREMENTS);
 
         // Metadata
+        int bodyStart = sb.length();
         sb.append("项目路径: ").append(projectDir.getAbsolutePath()).append("\n");
         sb.append("检测文件: \n");
+        fingerprint.addSection("header", sb.toString());
+        sectionTokens.put("header", estimator.estimate(sb));
 
-        // Include README (first 3000 chars)
-        File readme = new File(projectDir, "README.md");
-        if (readme.exists()) {
-            sb.append("--- README START ---\n");
-            try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(readme))) {
-                String line; int chars = 0;
-                while ((line = br.readLine()) != null && chars < 3000) {
-                    sb.append(line).append("\n");
-                    chars += line.length();
-                }
-            } catch (Exception ignored) {
-                logger.warn("读取README文件时发生错误", ignored);
-            }
-            sb.append("--- README END ---\n");
-        }
+        String footer = "注意：不要思考，直接返回必须是单一有效 JSON，且严格遵循上面给出的字段。不要在 JSON 外输出解释或注释。\n"
+                + "不要思考，直接按照指定格式输出结果，确保项目名称是中文且有意义。\n";
 
-        // List small selection of important files and sample their content
-        java.util.List<String> topFiles = new java.util.ArrayList<>();
-        // Look for pom.xml, build.gradle, setup.py, package.json
-        File f;
-        f = new File(projectDir, "pom.xml"); if (f.exists()) topFiles.add(f.getName());
-        f = new File(projectDir, "build.gradle"); if (f.exists()) topFiles.add(f.getName());
-        f = new File(projectDir, "package.json"); if (f.exists()) topFiles.add(f.getName());
-        f = new File(projectDir, "requirements.txt"); if (f.exists()) topFiles.add(f.getName());
-        // Also sample up to 3 source files by extension
-        String[] exts = new String[]{"java", "py", "js"};
-        int sampled = 0;
-        for (String ext : exts) {
-            if (sampled >= 3) break;
-            File[] arr = projectDir.listFiles((dir, name) -> name.toLowerCase().endsWith("." + ext));
-            if (arr == null) continue;
-            for (File c : arr) {
-                if (sampled >= 3) break;
-                topFiles.add(c.getName());
-                sb.append("--- FILE: ").append(c.getName()).append(" START ---\n");
-                try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(c))) {
-                    String line; int chars = 0;
-                    while ((line = br.readLine()) != null && chars < 2000) {
-                        sb.append(line).append("\n");
-                        chars += line.length();
-                    }
-                } catch (Exception ignored) {
-                    logger.warn("读取文件 {} 时发生错误", c.getName(), ignored);
-                }
-                sb.append("--- FILE: ").append(c.getName()).append(" END ---\n");
-                sampled++;
-            }
+        // 候选文件列表本身也占预算，先构建好再计算文件内容可用的预算
+        java.util.List<ContextPacker.Candidate> candidates = ContextPacker.collectCandidates(projectDir);
+        StringBuilder topFiles = new StringBuilder("TopFiles:\n");
+        for (ContextPacker.Candidate c : candidates) topFiles.append(c.file.getName()).append("\n");
+        int topFilesTokens = estimator.estimate(topFiles);
+        int footerTokens = estimator.estimate(footer);
+
+        int contentBudget = tokenBudget - sectionTokens.get("header") - topFilesTokens - footerTokens;
+        ContextPacker.PackedContext packed = packer.pack(candidates, Math.max(0, contentBudget));
+        for (ContextPacker.Section section : packed.sections) {
+            sb.append(section.text);
+            String name = "README".equals(section.label) ? "readme" : "file:" + section.label;
+            fingerprint.addSection(name, section.text);
+            sectionTokens.put(section.truncated ? section.label + "(截断)" : section.label, section.tokens);
         }
 
-        sb.append("TopFiles:\n");
-        for (String name : topFiles) sb.append(name).append("\n");
+        sb.append(topFiles);
+        fingerprint.addSection("top_files", topFiles.toString());
+        sectionTokens.put("top_files", topFilesTokens);
+        String body = sb.substring(bodyStart);
 
-        sb.append("注意：不要思考，直接返回必须是单一有效 JSON，且严格遵循上面给出的字段。不要在 JSON 外输出解释或注释。\n");
-        sb.append("不要思考，直接按照指定格式输出结果，确保项目名称是中文且有意义。\n");
-        
-        logger.debug("项目 {} 提示构建完成，总长度: {}", projectDir.getAbsolutePath(), sb.length());
-        return sb.toString();
+        sb.append(footer);
+        sectionTokens.put("footer", footerTokens);
+        
+        String digest = fingerprint.digest();
+        ProjectPrompt prompt = new ProjectPrompt(sb.toString(), digest, sectionTokens, tokenBudget, body);
+        logger.debug("项目 {} 提示构建完成，总长度: {}，指纹: {}", projectDir.getAbsolutePath(), sb.length(), digest);
+        logger.info("项目 {} 提示词 token 估算: {}", projectDir.getName(), prompt.describeTokens());
+        return prompt;
+    }
+    
+    /**
+     * 把多个小项目合并为一个提示词，要求模型返回 JSON 数组，每个元素用 project_path 标明对应的项目
+     */
+    static ProjectPrompt buildBatchPrompt(java.util.List<ProjectPrompt> prompts, TokenEstimator estimator, int tokenBudget) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("你是一个代码审查与项目分析助手。不要思考，直接逐个分析下述 ").append(prompts.size())
+          .append(" 个项目并以严格的 JSON 格式返回结果。不要输出任何额外的文本。\n");
+        sb.append("返回一个 JSON 数组，每个项目对应一个元素，元素中的 project_path 与下文给出的项目路径完全一致，其余字段说明：\n");
+        sb.append(ANALYSIS_SCHEMA);
+        sb.append(ANALYSIS_REQUIREMENTS);
+        java.util.Map<String, Integer> sectionTokens = new java.util.LinkedHashMap<>();
+        sectionTokens.put("header", estimator.estimate(sb));
+        for (int i = 0; i < prompts.size(); i++) {
+            String section = "\n=== 项目 " + (i + 1) + " ===\n" + prompts.get(i).body;
+            sb.append(section);
+            sectionTokens.put("项目" + (i + 1), estimator.estimate(section));
+        }
+        String footer = "\n注意：不要思考，直接返回单一有效的 JSON 数组，元素数量与项目数量一致，不要在 JSON 外输出解释或注释。\n";
+        sb.append(footer);
+        sectionTokens.put("footer", estimator.estimate(footer));
+        // 合并提示词不参与指纹比较，各项目保存时使用各自的指纹
+        return new ProjectPrompt(sb.toString(), null, sectionTokens, tokenBudget);
     }
     
     /**
@@ -543,6 +702,7 @@ public class Main {
             
             try {
                 cfg.save();
+                SharedHttpClient.warmUp(cfg);
                 JOptionPane.showMessageDialog(dialog, "保存成功");
                 logger.info("API配置保存成功");
                 dialog.dispose();
@@ -573,28 +733,62 @@ public class Main {
         ));
     }
     
+    /**
+     * 在后台读取项目最近一次的分析记录并显示，项目没有分析过时给出提示
+     */
+    private static void showLatestAnalysis(Component parent, String projectPath) {
+        logger.debug("查看项目最近的分析结果: {}", projectPath);
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                AnalysisResult latest = new HistoryManager().latestByProjectPath(projectPath);
+                return latest == null ? null : latest.getResult();
+            }
+
+            @Override
+            protected void done() {
+                String result;
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(parent, "获取分析结果失败：" + ex.getMessage());
+                    logger.error("获取项目最近的分析结果失败 - 项目路径: {}", projectPath, ex);
+                    return;
+                }
+                if (result == null) {
+                    JOptionPane.showMessageDialog(parent, "该项目还没有分析记录，请先分析。");
+                    return;
+                }
+                // 能解析为 JSON 时使用结构化显示，否则显示原文
+                try {
+                    new com.fasterxml.jackson.databind.ObjectMapper().readTree(result);
+                    showStructuredDialog(parent, result);
+                } catch (Exception ex) {
+                    showDetailsDialog(parent, result);
+                }
+            }
+        };
+        worker.execute();
+    }
+    
     private static void showHistoryDialog(JFrame parent) {
         logger.debug("显示历史记录对话框");
         
         HistoryManager hm = new HistoryManager();
-        java.util.List<AnalysisResult> items = hm.list();
-
-        // 更新列定义以包含项目名称和描述
-        String[] cols = new String[] { "ID", "Project Name", "Project Description", "Analyzed At" };
-        Object[][] data = new Object[items.size()][cols.length];
-        for (int i = 0; i < items.size(); i++) {
-            AnalysisResult ar = items.get(i);
-            data[i][0] = ar.id;
-            data[i][1] = ar.projectName;
-            data[i][2] = ar.projectDescription;
-            data[i][3] = ar.analyzedAt.toString();
-        }
-
-        javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(data, cols) {
-            @Override public boolean isCellEditable(int row, int col) { return false; }
-        };
+        // 分页读取摘要列，滚动到哪一页才查询哪一页，不读取分析结果
+        HistoryTableModel model = new HistoryTableModel(hm);
         JTable table = new JTable(model);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // 点击表头由数据库排序
+        table.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int col = table.columnAtPoint(e.getPoint());
+                if (col < 0) return;
+                model.toggleSort(table.convertColumnIndexToModel(col));
+                updateHistoryHeaders(table, model);
+            }
+        });
         table.setPreferredScrollableViewportSize(new Dimension(800, 300));
         styleTable(table);
 
@@ -624,19 +818,7 @@ public class Main {
 
         refresh.addActionListener(ev -> {
             logger.debug("用户点击刷新历史记录");
-            
-            java.util.List<AnalysisResult> newItems = hm.list();
-            Object[][] newData = new Object[newItems.size()][cols.length];
-            for (int i = 0; i < newItems.size(); i++) {
-                AnalysisResult ar = newItems.get(i);
-                newData[i][0] = ar.id;
-                newData[i][1] = ar.projectName;
-                newData[i][2] = ar.projectDescription;
-                newData[i][3] = ar.analyzedAt.toString();
-            }
-            model.setDataVector(newData, cols);
-            
-            logger.debug("历史记录刷新完成，共 {} 条记录", newItems.size());
+            model.refresh();
         });
 
         details.addActionListener(ev -> {
@@ -646,13 +828,16 @@ public class Main {
                 logger.warn("用户尝试查看详情但未选择任何记录");
                 return;
             }
-            int id = Integer.parseInt(String.valueOf(model.getValueAt(sel, 0)));
+            AnalysisResult row = model.getRow(sel);
+            if (row == null) {
+                JOptionPane.showMessageDialog(dlg, "记录尚在加载，请稍候");
+                return;
+            }
+            int id = row.id;
             try {
-                // 查询单条记录并显示详情
-                java.util.List<AnalysisResult> list = hm.list();
-                AnalysisResult found = null;
-                for (AnalysisResult ar : list) if (ar.id == id) { found = ar; break; }
-                if (found == null) {
+                // 按主键读取该记录的分析结果（最近查看过的直接从缓存取）并显示详情
+                String result = hm.loadResult(id);
+                if (result == null) {
                     JOptionPane.showMessageDialog(dlg, "未找到记录");
                     logger.warn("未找到ID为 {} 的历史记录", id);
                     return;
@@ -661,13 +846,13 @@ public class Main {
                 // 尝试解析为结构化数据显示，如果失败则显示原始详情
                 try {
                     com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                    mapper.readTree(found.result);
+                    mapper.readTree(result);
                     // 如果能成功解析为JSON，则使用结构化显示
-                    showStructuredDialog(dlg, found.result);
+                    showStructuredDialog(dlg, result);
                     logger.debug("显示ID为 {} 的结构化历史记录", id);
                 } catch (Exception ex) {
                     // 如果不是有效的JSON，则使用普通详情显示
-                    showDetailsDialog(dlg, found.result);
+                    showDetailsDialog(dlg, result);
                     logger.debug("显示ID为 {} 的原始历史记录", id);
                 }
             } catch (Exception ex) {
@@ -687,10 +872,14 @@ public class Main {
             
             try {
                 // 获取选中行的项目信息
-                java.util.List<AnalysisResult> list = hm.list();
-                int id = Integer.parseInt(String.valueOf(model.getValueAt(sel, 0)));
-                AnalysisResult found = null;
-                for (AnalysisResult ar : list) if (ar.id == id) { found = ar; break; }
+                AnalysisResult row = model.getRow(sel);
+                if (row == null) {
+                    JOptionPane.showMessageDialog(dlg, "记录尚在加载，请稍候");
+                    return;
+                }
+                // 按主键查找记录，分析结果需要时才读取
+                int id = row.id;
+                AnalysisResult found = hm.findById(id);
                 
                 if (found == null) {
                     JOptionPane.showMessageDialog(dlg, "未找到记录");
@@ -724,10 +913,14 @@ public class Main {
             
             try {
                 // 获取选中行的项目路径
-                java.util.List<AnalysisResult> list = hm.list();
-                int id = Integer.parseInt(String.valueOf(model.getValueAt(sel, 0)));
-                AnalysisResult found = null;
-                for (AnalysisResult ar : list) if (ar.id == id) { found = ar; break; }
+                AnalysisResult row = model.getRow(sel);
+                if (row == null) {
+                    JOptionPane.showMessageDialog(dlg, "记录尚在加载，请稍候");
+                    return;
+                }
+                // 按主键查找记录，分析结果需要时才读取
+                int id = row.id;
+                AnalysisResult found = hm.findById(id);
                 
                 if (found == null) {
                     JOptionPane.showMessageDialog(dlg, "未找到记录");
@@ -748,12 +941,29 @@ public class Main {
             dlg.dispose();
             logger.debug("关闭历史记录对话框");
         });
+        dlg.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                model.close();
+            }
+        });
 
         dlg.pack();
         dlg.setLocationRelativeTo(parent);
         dlg.setVisible(true);
     }
     
+    /**
+     * 排序改变后更新表头上的排序标记
+     */
+    private static void updateHistoryHeaders(JTable table, HistoryTableModel model) {
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            javax.swing.table.TableColumn column = table.getColumnModel().getColumn(i);
+            column.setHeaderValue(model.getColumnName(column.getModelIndex()));
+        }
+        table.getTableHeader().repaint();
+    }
+
     /**
      * 样式化表格
      */
@@ -957,13 +1167,7 @@ public class Main {
             JLabel riskLabel = new JLabel("风险等级: " + risk.toUpperCase());
             riskLabel.setFont(new Font("微软雅黑", Font.BOLD, 12));
             // 根据风险等级设置颜色
-            if ("high".equalsIgnoreCase(risk)) {
-                riskLabel.setForeground(new Color(220, 53, 69)); // 红色
-            } else if ("medium".equalsIgnoreCase(risk)) {
-                riskLabel.setForeground(new Color(255, 193, 7)); // 黄色
-            } else {
-                riskLabel.setForeground(new Color(40, 167, 69)); // 绿色
-            }
+            riskLabel.setForeground(riskColor(risk));
             riskLabel.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(riskLabel.getForeground(), 1, true),
                 BorderFactory.createEmptyBorder(3, 10, 3, 10)
@@ -1099,6 +1303,232 @@ public class Main {
         dlg.setVisible(true);
     }
     
+    /**
+     * 风险等级对应的颜色
+     */
+    private static Color riskColor(String risk) {
+        if ("high".equalsIgnoreCase(risk)) {
+            return new Color(220, 53, 69); // 红色
+        } else if ("medium".equalsIgnoreCase(risk)) {
+            return new Color(255, 193, 7); // 黄色
+        }
+        return new Color(40, 167, 69); // 绿色
+    }
+
+    /**
+     * 批量分析时的实时结构化结果：每个项目一张卡片，模型输出的 JSON 字段一完整就填入，
+     * 不必等整个项目分析完成。片段在分析线程中解析，卡片只在事件线程中更新。
+     */
+    private static class LiveResultPanel extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        // 只保留最近的卡片，长时间批量分析时界面不会无限增长
+        private static final int MAX_CARDS = 100;
+
+        private final JPanel cards = new JPanel();
+        // 每个项目当前响应的解析器，由分析线程访问
+        private final transient java.util.Map<String, AnalysisEventParser> parsers = new java.util.concurrent.ConcurrentHashMap<>();
+        // 项目路径#结果序号 -> 卡片，只在事件线程访问
+        private final java.util.Map<String, ResultCard> cardMap = new java.util.HashMap<>();
+
+        LiveResultPanel() {
+            super(new BorderLayout());
+            setBackground(PANEL_COLOR);
+            cards.setLayout(new BoxLayout(cards, BoxLayout.Y_AXIS));
+            cards.setBackground(PANEL_COLOR);
+            cards.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+            // 卡片按内容高度排列，不随面板拉伸
+            JPanel holder = new JPanel(new BorderLayout());
+            holder.setBackground(PANEL_COLOR);
+            holder.add(cards, BorderLayout.NORTH);
+            JScrollPane scrollPane = new JScrollPane(holder);
+            scrollPane.getViewport().setBackground(PANEL_COLOR);
+            scrollPane.setBorder(BorderFactory.createLineBorder(BORDER_COLOR, 1));
+            scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+            add(scrollPane, BorderLayout.CENTER);
+        }
+
+        /**
+         * 开始新的一次批量分析，清空之前的卡片
+         */
+        void clear() {
+            parsers.clear();
+            SwingUtilities.invokeLater(() -> {
+                cardMap.clear();
+                cards.removeAll();
+                cards.revalidate();
+                cards.repaint();
+            });
+        }
+
+        /**
+         * 项目开始接收模型响应，重新请求时丢弃上一次的卡片（分析线程调用）
+         */
+        void start(String projectPath) {
+            SwingUtilities.invokeLater(() -> removeCards(projectPath));
+            parsers.put(projectPath, new AnalysisEventParser(new AnalysisEventParser.Listener() {
+                @Override
+                public void field(int result, String name, String value) {
+                    SwingUtilities.invokeLater(() -> card(projectPath, result).setField(name, value));
+                }
+
+                @Override
+                public void item(int result, String field, com.fasterxml.jackson.databind.JsonNode item) {
+                    SwingUtilities.invokeLater(() -> card(projectPath, result).addItem(field, item));
+                }
+
+                @Override
+                public void resultEnd(int result, com.fasterxml.jackson.databind.node.ObjectNode node) {
+                    SwingUtilities.invokeLater(() -> card(projectPath, result).complete(node));
+                }
+            }));
+        }
+
+        /**
+         * 输入模型响应片段（分析线程调用）
+         */
+        void feed(String projectPath, String chunk) {
+            AnalysisEventParser parser = parsers.get(projectPath);
+            if (parser != null) {
+                parser.feed(chunk);
+                if (parser.isFinished()) parsers.remove(projectPath, parser);
+            }
+        }
+
+        private ResultCard card(String projectPath, int result) {
+            String key = projectPath + "#" + result;
+            ResultCard card = cardMap.get(key);
+            if (card == null) {
+                card = new ResultCard(new File(projectPath).getName());
+                cardMap.put(key, card);
+                cards.add(card);
+                cards.add(Box.createVerticalStrut(10));
+                while (cards.getComponentCount() > MAX_CARDS * 2) {
+                    cardMap.values().remove(cards.getComponent(0));
+                    cards.remove(1);
+                    cards.remove(0);
+                }
+                cards.revalidate();
+            }
+            return card;
+        }
+
+        private void removeCards(String projectPath) {
+            java.util.Iterator<java.util.Map.Entry<String, ResultCard>> it = cardMap.entrySet().iterator();
+            while (it.hasNext()) {
+                java.util.Map.Entry<String, ResultCard> e = it.next();
+                if (e.getKey().startsWith(projectPath + "#")) {
+                    int index = cards.getComponentZOrder(e.getValue());
+                    cards.remove(index + 1);
+                    cards.remove(index);
+                    it.remove();
+                }
+            }
+            cards.revalidate();
+            cards.repaint();
+        }
+    }
+
+    /**
+     * 实时结果中的一个项目卡片
+     */
+    private static class ResultCard extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        private final JLabel titleLabel;
+        private final JLabel riskLabel = new JLabel();
+        private final JTextArea summaryArea = new JTextArea();
+        private final DefaultListModel<String> items = new DefaultListModel<>();
+        private final JButton detailBtn = createStyledButton("查看详情");
+        private boolean hasName;
+        private com.fasterxml.jackson.databind.node.ObjectNode result;
+
+        ResultCard(String name) {
+            super(new BorderLayout(0, 5));
+            setBackground(Color.WHITE);
+            setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(BORDER_COLOR, 1, true),
+                BorderFactory.createEmptyBorder(10, 10, 10, 10)
+            ));
+
+            JPanel header = new JPanel(new BorderLayout(10, 0));
+            header.setBackground(Color.WHITE);
+            titleLabel = new JLabel("📊 " + name);
+            titleLabel.setFont(new Font("微软雅黑", Font.BOLD, 14));
+            titleLabel.setForeground(PRIMARY_COLOR);
+            header.add(titleLabel, BorderLayout.CENTER);
+            JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+            right.setBackground(Color.WHITE);
+            riskLabel.setFont(new Font("微软雅黑", Font.BOLD, 12));
+            riskLabel.setVisible(false);
+            right.add(riskLabel);
+            // 整个结果对象完整后才能查看详情
+            detailBtn.setEnabled(false);
+            detailBtn.addActionListener(e -> showStructuredDialog(this, result.toString()));
+            right.add(detailBtn);
+            header.add(right, BorderLayout.EAST);
+            add(header, BorderLayout.NORTH);
+
+            summaryArea.setLineWrap(true);
+            summaryArea.setWrapStyleWord(true);
+            summaryArea.setEditable(false);
+            summaryArea.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+            summaryArea.setForeground(TEXT_COLOR);
+            summaryArea.setVisible(false);
+            add(summaryArea, BorderLayout.CENTER);
+
+            JList<String> itemList = new JList<>(items);
+            styleList(itemList);
+            add(itemList, BorderLayout.SOUTH);
+        }
+
+        void setField(String name, String value) {
+            switch (name) {
+                case "project_name":
+                    titleLabel.setText("📊 " + value);
+                    hasName = true;
+                    break;
+                case "project_path":
+                    titleLabel.setToolTipText(value);
+                    if (!hasName) titleLabel.setText("📊 " + new File(value).getName());
+                    break;
+                case "summary":
+                    summaryArea.setText(value);
+                    summaryArea.setVisible(true);
+                    break;
+                case "risk_level":
+                    riskLabel.setText("风险等级: " + value.toUpperCase());
+                    riskLabel.setForeground(riskColor(value));
+                    riskLabel.setVisible(true);
+                    break;
+                default:
+                    return;
+            }
+            revalidate();
+        }
+
+        void addItem(String field, com.fasterxml.jackson.databind.JsonNode item) {
+            String label;
+            switch (field == null ? "" : field) {
+                case "modules": label = "📦 "; break;
+                case "issues": label = "⚠️ "; break;
+                case "suggestions": label = "💡 "; break;
+                case "top_files": label = "📄 "; break;
+                default: return;
+            }
+            String text = item.isObject()
+                    ? item.path("name").asText("") + (item.hasNonNull("description") ? " - " + item.get("description").asText() : "")
+                    : item.asText();
+            items.addElement(label + text);
+            revalidate();
+        }
+
+        void complete(com.fasterxml.jackson.databind.node.ObjectNode node) {
+            result = node;
+            detailBtn.setEnabled(true);
+        }
+    }
+
     /**
      * 创建带标题的样式化面板（卡片样式）
      */
@@ -1164,19 +1594,24 @@ public class Main {
             protected String doInBackground() throws Exception {
                 try {
                     ConfigManager cfg = new ConfigManager();
-                    String apiUrl = cfg.get("api.url", System.getenv().getOrDefault("OPENAI_API_URL", cfg.getDefaultApiUrl()));
+                    java.util.List<String> apiUrls = cfg.getApiUrls();
                     String apiKey = cfg.get("api.key", System.getenv().getOrDefault("OPENAI_API_KEY", "sk-xxx"));
                     String model = cfg.getModel();
                     
-                    if (apiUrl.isEmpty() || apiKey.isEmpty()) {
+                    if (apiUrls.isEmpty() || apiKey.isEmpty()) {
                         throw new Exception("未设置 API 地址或 Key");
                     }
                     
-                    LLMClient client = new LLMClient(apiUrl, apiKey, model);
+                    // 使用手册是 Markdown 文本，不使用 JSON 输出格式
+                    ChatOptions options = ChatOptions.fromConfig(cfg);
+                    options.responseFormat = null;
+                    LLMClient client = new LLMClient(apiUrls, apiKey, model, options);
+                    // 用户主动重新生成手册，不使用缓存的旧手册
+                    client.setReuseCachedResponses(false);
                     File projectDir = new File(analysisResult.projectPath);
                     
                     // 构建生成手册的提示词
-                    String prompt = buildManualPromptForProject(projectDir, analysisResult.result);
+                    String prompt = buildManualPromptForProject(projectDir, analysisResult.getResult());
                     logger.debug("使用手册提示词构建完成，长度: {}", prompt.length());
                     
                     // 调用大模型生成使用手册
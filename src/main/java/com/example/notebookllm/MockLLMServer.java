@@ -0,0 +1,373 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 本地模拟的 OpenAI 兼容模型服务，用于在没有真实模型时测试和压测 {@link LLMClient} 与批量分析。
+ * 支持 /v1/chat/completions 的流式和非流式请求，可以设置首 token 延迟、每秒 token 数、错误率，
+ * 并可以回放录制的响应；未指定回放文件时按提示词中的项目路径生成分析结果 JSON（合并请求返回数组）。
+ * 用法：mvn -q exec:java -Dexec.mainClass=com.example.notebookllm.MockLLMServer
+ *       -Dexec.args="--port 18080 --ttft 300 --tps 40 --error-rate 0.05 --replay responses.jsonl"
+ */
+public class MockLLMServer {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(MockLLMServer.class);
+
+    // 每个模拟 token 包含的字符数
+    private static final int CHARS_PER_TOKEN = 3;
+
+    /**
+     * 模拟服务的参数
+     */
+    public static class Options {
+        public int port = 18080;
+        // 首 token 延迟
+        public long ttftMs = 200;
+        public double tokensPerSecond = 50;
+        // 返回错误响应的概率
+        public double errorRate;
+        // 错误响应的状态码，429 和 503 带 Retry-After
+        public int errorStatus = 503;
+        // 模拟推理模型：内容前加 <think> 块，JSON 外包代码块并附带说明文字
+        public boolean reasoning;
+        // 录制的响应，每行一个 JSON：{"match": "提示词包含的文本（可选）", "content": "响应内容"}
+        public File replayFile;
+
+        /**
+         * 解析从 args[i] 开始的一个参数（--port --ttft --tps --error-rate --error-status --reasoning --replay），
+         * 返回下一个参数的位置，不认识的参数返回 -1。--reasoning 是开关，不带值（也接受 --reasoning true/false）
+         */
+        public int parse(String[] args, int i) {
+            String name = args[i];
+            if ("--reasoning".equals(name)) {
+                if (i + 1 < args.length && ("true".equals(args[i + 1]) || "false".equals(args[i + 1]))) {
+                    reasoning = Boolean.parseBoolean(args[i + 1]);
+                    return i + 2;
+                }
+                reasoning = true;
+                return i + 1;
+            }
+            switch (name) {
+                case "--port": port = Integer.parseInt(value(args, i)); return i + 2;
+                case "--ttft": ttftMs = Long.parseLong(value(args, i)); return i + 2;
+                case "--tps": tokensPerSecond = Double.parseDouble(value(args, i)); return i + 2;
+                case "--error-rate": errorRate = Double.parseDouble(value(args, i)); return i + 2;
+                case "--error-status": errorStatus = Integer.parseInt(value(args, i)); return i + 2;
+                case "--replay": replayFile = new File(value(args, i)); return i + 2;
+                default: return -1;
+            }
+        }
+
+        /**
+         * 参数 args[i] 的值
+         */
+        static String value(String[] args, int i) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("参数 " + args[i] + " 缺少值");
+            }
+            return args[i + 1];
+        }
+    }
+
+    /**
+     * 一条录制的响应
+     */
+    private static class Recorded {
+        final String match;
+        final String content;
+
+        Recorded(String match, String content) {
+            this.match = match;
+            this.content = content;
+        }
+    }
+
+    private final Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Recorded> recorded = new ArrayList<>();
+    private final AtomicInteger replayIndex = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MockLLMServer(Options options) throws IOException {
+        this.options = options;
+        if (options.replayFile != null) {
+            for (String line : Files.readAllLines(options.replayFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) continue;
+                JsonNode node = mapper.readTree(line);
+                String match = node.path("match").asText("");
+                recorded.add(new Recorded(match.isEmpty() ? null : match, node.path("content").asText("")));
+            }
+            logger.info("已加载 {} 条录制的响应: {}", recorded.size(), options.replayFile);
+        }
+    }
+
+    /**
+     * 启动服务，端口为 0 时使用随机端口
+     * @return 实际监听的端口
+     */
+    public int start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port), 0);
+        server.createContext("/", this::handle);
+        // 每个请求一个线程，模拟服务端同时生成多个响应
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-llm");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+        logger.info("模拟模型服务已启动: {}（首 token {} ms，{} token/s，错误率 {}）",
+                getUrl(), options.ttftMs, options.tokensPerSecond, options.errorRate);
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                // 与真实服务一致，HEAD 等请求返回 405，连接预热和健康检查只关心能否连通
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            requests.incrementAndGet();
+            if (ThreadLocalRandom.current().nextDouble() < options.errorRate) {
+                errors.incrementAndGet();
+                sendError(exchange);
+                return;
+            }
+            JsonNode messages = request.path("messages");
+            String prompt = messages.path(messages.size() - 1).path("content").asText("");
+            String model = request.path("model").asText("mock");
+            List<String> tokens = tokenize(respond(prompt));
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, model, tokens, request.path("stream_options").path("include_usage").asBoolean(false), prompt);
+            } else {
+                sleep(options.ttftMs + tokenDelayMs(tokens.size()));
+                ObjectNode body = completion(model, "chat.completion");
+                ObjectNode choice = body.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", String.join("", tokens));
+                choice.put("finish_reason", "stop");
+                putUsage(body, prompt, tokens.size());
+                byte[] bytes = mapper.writeValueAsBytes(body);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+        } catch (IOException e) {
+            // 客户端提前断开连接
+            logger.debug("模拟服务响应中断: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, List<String> tokens, boolean includeUsage, String prompt)
+            throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleep(options.ttftMs);
+        long perToken = tokenDelayMs(1);
+        for (String token : tokens) {
+            ObjectNode chunk = completion(model, "chat.completion.chunk");
+            ObjectNode choice = chunk.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("delta").put("content", token);
+            choice.putNull("finish_reason");
+            writeEvent(out, mapper.writeValueAsString(chunk));
+            sleep(perToken);
+        }
+        ObjectNode finish = completion(model, "chat.completion.chunk");
+        ObjectNode choice = finish.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta");
+        choice.put("finish_reason", "stop");
+        writeEvent(out, mapper.writeValueAsString(finish));
+        if (includeUsage) {
+            ObjectNode usage = completion(model, "chat.completion.chunk");
+            usage.putArray("choices");
+            putUsage(usage, prompt, tokens.size());
+            writeEvent(out, mapper.writeValueAsString(usage));
+        }
+        writeEvent(out, "[DONE]");
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sendError(HttpExchange exchange) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.putObject("error").put("message", "mock server error").put("type", "server_error");
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        if (options.errorStatus == 429 || options.errorStatus == 503) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(options.errorStatus, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private ObjectNode completion(String model, String object) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", "chatcmpl-mock-" + requests.get());
+        node.put("object", object);
+        node.put("created", System.currentTimeMillis() / 1000);
+        node.put("model", model);
+        return node;
+    }
+
+    private static void putUsage(ObjectNode node, String prompt, int completionTokens) {
+        int promptTokens = (prompt.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        node.putObject("usage")
+            .put("prompt_tokens", promptTokens)
+            .put("completion_tokens", completionTokens)
+            .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private long tokenDelayMs(int tokens) {
+        return options.tokensPerSecond > 0 ? (long) (tokens * 1000 / options.tokensPerSecond) : 0;
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    /**
+     * 选择响应内容：优先使用匹配的录制响应，其次轮流使用未设置 match 的录制响应，都没有时生成分析结果
+     */
+    private String respond(String prompt) throws IOException {
+        List<Recorded> fallback = new ArrayList<>();
+        for (Recorded r : recorded) {
+            if (r.match == null) {
+                fallback.add(r);
+            } else if (prompt.contains(r.match)) {
+                return r.content;
+            }
+        }
+        if (!fallback.isEmpty()) {
+            return fallback.get(Math.floorMod(replayIndex.getAndIncrement(), fallback.size())).content;
+        }
+        String json = synthesize(prompt);
+        if (options.reasoning) {
+            return "<think>\n先看项目路径和 README，再判断主要模块和风险。\n</think>\n```json\n" + json
+                    + "\n```\n以上是项目的分析结果，如需进一步说明请告诉我。";
+        }
+        return json;
+    }
+
+    /**
+     * 按提示词中的"项目路径: "行生成分析结果，多个项目时返回带 project_path 的数组
+     */
+    private String synthesize(String prompt) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String line : prompt.split("\n")) {
+            if (line.startsWith("项目路径: ")) paths.add(line.substring("项目路径: ".length()).trim());
+        }
+        if (paths.size() <= 1) {
+            return mapper.writeValueAsString(analysis(paths.isEmpty() ? "项目" : paths.get(0), false));
+        }
+        ArrayNode array = mapper.createArrayNode();
+        for (String path : paths) array.add(analysis(path, true));
+        return mapper.writeValueAsString(array);
+    }
+
+    private ObjectNode analysis(String path, boolean withPath) {
+        String name = new File(path).getName();
+        ObjectNode node = mapper.createObjectNode();
+        if (withPath) node.put("project_path", path);
+        node.put("project_name", "模拟项目-" + name);
+        node.put("summary", "这是模拟模型服务为 " + name + " 生成的分析结果，用于测试和压测。");
+        ArrayNode modules = node.putArray("modules");
+        modules.addObject().put("name", "核心模块").put("description", "项目的主要功能实现");
+        modules.addObject().put("name", "配置").put("description", "构建和运行配置");
+        node.putArray("issues").add("缺少单元测试");
+        node.putArray("suggestions").add("补充 README 中的使用说明");
+        node.putArray("top_files").add("README.md");
+        node.put("risk_level", "low");
+        return node;
+    }
+
+    private static List<String> tokenize(String content) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < content.length()) {
+            int end = i;
+            for (int n = 0; n < CHARS_PER_TOKEN && end < content.length(); n++) {
+                end = content.offsetByCodePoints(end, 1);
+            }
+            tokens.add(content.substring(i, end));
+            i = end;
+        }
+        return tokens;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        for (int i = 0; i < args.length; ) {
+            int next = options.parse(args, i);
+            if (next < 0) {
+                System.err.println("未知参数: " + args[i]);
+                System.exit(1);
+            }
+            i = next;
+        }
+        MockLLMServer server = new MockLLMServer(options);
+        server.start();
+        System.out.println("模拟模型服务: " + server.getUrl() + "，按 Ctrl+C 退出");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于 java.nio.file 的项目扫描引擎，是 {@link ProjectScanner} 中 File 扫描方式的可替换实现。
+ * 使用 Files.walkFileTree 遍历，每个条目的类型只从遍历得到的 BasicFileAttributes 读取一次，
+ * 项目标识文件也在同一次目录遍历中识别；支持最大深度限制和符号链接循环保护。
+ * 忽略规则、标识文件以及结果顺序（目录先序）与 File 扫描方式一致；
+ * 由于遍历中 .gitignore 可能晚于子目录出现，开启 scan.gitignore 时会在进入目录时单独检查它是否存在。
+ */
+public class NioProjectScanner {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(NioProjectScanner.class);
+
+    private final int maxDepth;
+    private final boolean followLinks;
+
+    /**
+     * @param maxDepth 最大扫描深度（根目录为0），小于0表示不限制
+     * @param followLinks 是否跟随符号链接；跟随时会检测并跳过链接循环
+     */
+    public NioProjectScanner(int maxDepth, boolean followLinks) {
+        this.maxDepth = maxDepth < 0 ? Integer.MAX_VALUE : maxDepth;
+        this.followLinks = followLinks;
+    }
+
+    public List<File> scan(File root) {
+        return scan(root, IgnoreRules.defaults(), ScanMonitor.silent());
+    }
+
+    public List<File> scan(File root, IgnoreRules rules, ScanMonitor monitor) {
+        logger.info("开始NIO扫描项目目录: {}，最大深度: {}，跟随链接: {}",
+                root.getAbsolutePath(), maxDepth == Integer.MAX_VALUE ? "不限" : maxDepth, followLinks);
+        long start = System.currentTimeMillis();
+
+        // 目录在先序访问时占位，后序访问时再确定是否为项目，从而保持与顺序扫描一致的结果顺序
+        List<File> slots = new ArrayList<>();
+        Deque<Frame> stack = new ArrayDeque<>();
+        Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : Collections.emptySet();
+        // walkFileTree 的深度以条目计，目录内容比目录本身深一层
+        int walkDepth = maxDepth == Integer.MAX_VALUE ? Integer.MAX_VALUE : maxDepth + 1;
+
+        try {
+            Files.walkFileTree(root.toPath(), options, walkDepth, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (monitor.isCancelled()) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    String name = fileName(dir);
+                    Frame parent = stack.peek();
+                    // 与 File 扫描一致：同名的子目录同样视为标识
+                    if (parent != null && ProjectScanner.isProjectMarker(name)) {
+                        parent.project = true;
+                    }
+                    IgnoreRules dirRules = parent != null ? parent.childRules : rules;
+                    if (dirRules.isIgnored(dir)) {
+                        logger.debug("跳过忽略的目录: {}", dir);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    stack.push(new Frame(slots.size(), dirRules.enter(dir)));
+                    slots.add(null);
+                    monitor.directoryVisited();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Frame parent = stack.peek();
+                    if (parent != null && !parent.project && ProjectScanner.isProjectMarker(fileName(file))) {
+                        parent.project = true;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    if (exc instanceof FileSystemLoopException) {
+                        logger.warn("检测到符号链接循环，跳过: {}", file);
+                    } else {
+                        logger.warn("无法访问: {}", file, exc);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    if (exc != null) {
+                        logger.warn("遍历目录时发生错误: {}", dir, exc);
+                    }
+                    Frame frame = stack.pop();
+                    if (frame.project) {
+                        File projectDir = dir.toFile();
+                        slots.set(frame.slot, projectDir);
+                        monitor.projectFound(projectDir);
+                        logger.info("添加项目目录: {}", projectDir.getAbsolutePath());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error("NIO扫描项目目录失败: {}", root.getAbsolutePath(), e);
+        }
+
+        List<File> projects = new ArrayList<>();
+        for (File f : slots) {
+            if (f != null) projects.add(f);
+        }
+        logger.info("NIO扫描完成，共找到 {} 个项目，耗时 {} ms", projects.size(), System.currentTimeMillis() - start);
+        return projects;
+    }
+
+    private static String fileName(Path path) {
+        Path name = path.getFileName();
+        return name == null ? path.toString() : name.toString();
+    }
+
+    /**
+     * 正在遍历的目录：占位下标、适用于子目录的忽略规则及是否已发现标识文件
+     */
+    private static class Frame {
+        final int slot;
+        final IgnoreRules childRules;
+        boolean project;
+
+        Frame(int slot, IgnoreRules childRules) {
+            this.slot = slot;
+            this.childRules = childRules;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.notebookllm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分析输出框。模型流式输出的片段很碎，逐个 append 会让事件线程忙于重新布局，
+ * 这里把任意线程写入的片段先攒起来，按固定帧率一次性追加到文档；
+ * 文档超过上限时从头部裁掉较早的内容，完整输出另外写入 logs 目录下的文件，
+ * 只保留最近的若干个文件；窗口关闭时调用 {@link #close()} 写完并关闭文件。
+ */
+public class OutputConsole extends JTextArea {
+    private static final long serialVersionUID = 1L;
+
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(OutputConsole.class);
+
+    // 输出文件最多每隔这么久刷新一次磁盘
+    private static final long FILE_FLUSH_INTERVAL_MS = 1000;
+
+    private final int maxChars;
+    private final int keepFiles;
+    private final Timer timer;
+    private final StringBuilder pending = new StringBuilder();
+
+    private final Object fileLock = new Object();
+    private File transcriptFile;
+    private transient BufferedWriter transcript;
+    private boolean transcriptFailed;
+    private boolean transcriptClosed;
+    private long lastFileFlush;
+
+    public OutputConsole(int maxChars, int framesPerSecond, int keepFiles) {
+        this.maxChars = Math.max(1000, maxChars);
+        this.keepFiles = Math.max(1, keepFiles);
+        this.timer = new Timer(1000 / Math.max(1, Math.min(120, framesPerSecond)), e -> flushPending());
+        this.timer.setCoalesce(true);
+    }
+
+    /**
+     * 写入一段输出，可在任意线程调用；文本在下一帧显示
+     */
+    public void write(String text) {
+        if (text == null || text.isEmpty()) return;
+        writeTranscript(text);
+        boolean start;
+        synchronized (pending) {
+            start = pending.length() == 0;
+            pending.append(text);
+        }
+        if (start) {
+            SwingUtilities.invokeLater(() -> {
+                if (!timer.isRunning()) timer.start();
+            });
+        }
+    }
+
+    /**
+     * 在事件线程中直接追加（扫描进度等少量输出），先显示之前攒下的片段以保持顺序
+     */
+    @Override
+    public void append(String text) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            write(text);
+            return;
+        }
+        if (text == null || text.isEmpty()) return;
+        writeTranscript(text);
+        String buffered = takePending();
+        appendToDocument(buffered == null ? text : buffered + text);
+    }
+
+    @Override
+    public void setText(String text) {
+        synchronized (pending) {
+            pending.setLength(0);
+        }
+        super.setText(text);
+        if (text != null && !text.isEmpty()) writeTranscript(text);
+    }
+
+    /**
+     * 完整输出所在的文件，尚未有输出或无法写入时为 null
+     */
+    public File getTranscriptFile() {
+        synchronized (fileLock) {
+            return transcriptFailed ? null : transcriptFile;
+        }
+    }
+
+    /**
+     * 把已写入的输出刷新到磁盘
+     */
+    public void flushTranscript() {
+        synchronized (fileLock) {
+            if (transcript == null) return;
+            try {
+                transcript.flush();
+                lastFileFlush = System.currentTimeMillis();
+            } catch (IOException ex) {
+                logger.warn("写入输出文件失败: {}", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 写完并关闭输出文件，之后的输出只显示在界面中
+     */
+    public void close() {
+        synchronized (fileLock) {
+            transcriptClosed = true;
+            if (transcript == null) return;
+            try {
+                transcript.close();
+            } catch (IOException ex) {
+                logger.warn("关闭输出文件失败: {}", ex.getMessage());
+            }
+            transcript = null;
+        }
+    }
+
+    private void flushPending() {
+        String text = takePending();
+        if (text == null) {
+            // 没有新输出时停掉定时器，下次写入再启动
+            timer.stop();
+            return;
+        }
+        appendToDocument(text);
+    }
+
+    private String takePending() {
+        synchronized (pending) {
+            if (pending.length() == 0) return null;
+            String text = pending.toString();
+            pending.setLength(0);
+            return text;
+        }
+    }
+
+    private void appendToDocument(String text) {
+        super.append(text);
+        Document doc = getDocument();
+        int length = doc.getLength();
+        if (length <= maxChars) return;
+        try {
+            // 一次裁到上限的 3/4，不必每帧都裁；从整行处裁开
+            int cut = length - maxChars * 3 / 4;
+            String head = doc.getText(cut, Math.min(length - cut, 4096));
+            int newline = head.indexOf('\n');
+            if (newline >= 0) cut += newline + 1;
+            File file = getTranscriptFile();
+            String notice = file != null
+                    ? "……较早的输出已省略，完整内容见 " + file.getAbsolutePath() + "\n"
+                    : "……较早的输出已省略\n";
+            replaceRange(notice, 0, cut);
+        } catch (BadLocationException ex) {
+            logger.warn("裁剪输出失败: {}", ex.getMessage());
+        }
+    }
+
+    private void writeTranscript(String text) {
+        synchronized (fileLock) {
+            if (transcriptFailed || transcriptClosed) return;
+            try {
+                if (transcript == null) {
+                    File dir = new File("logs");
+                    Files.createDirectories(dir.toPath());
+                    transcriptFile = new File(dir, "output-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".log");
+                    transcript = Files.newBufferedWriter(transcriptFile.toPath(), StandardCharsets.UTF_8);
+                    logger.info("分析输出同时写入 {}", transcriptFile.getAbsolutePath());
+                    pruneTranscripts(dir);
+                }
+                transcript.write(text);
+                long now = System.currentTimeMillis();
+                if (now - lastFileFlush >= FILE_FLUSH_INTERVAL_MS) {
+                    transcript.flush();
+                    lastFileFlush = now;
+                }
+            } catch (IOException ex) {
+                transcriptFailed = true;
+                logger.warn("无法写入输出文件，只在界面中保留最近的输出: {}", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 删除较早的输出文件，只保留最近的 keepFiles 个（文件名中的时间可按字符串排序）
+     */
+    private void pruneTranscripts(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("output-") && name.endsWith(".log"));
+        if (files == null || files.length <= keepFiles) return;
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        for (int i = 0; i < files.length - keepFiles; i++) {
+            if (files[i].equals(transcriptFile)) continue;
+            if (!files[i].delete()) {
+                logger.warn("无法删除较早的输出文件 {}", files[i].getAbsolutePath());
+            }
+        }
+        logger.debug("清理较早的输出文件，保留最近 {} 个", keepFiles);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.notebookllm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 项目内容指纹：对构建提示词时实际读取的每个片段（README、源文件节选、文件列表等）
+ * 分别计算 SHA-256 作为叶子哈希，再与模型名称、提示词版本一起汇总为根哈希。
+ * 指纹相同说明发送给模型的内容完全一致，可以直接复用上次的分析结果。
+ */
+public class ProjectFingerprint {
+    private final MessageDigest root;
+    private String digest;
+
+    public ProjectFingerprint(String model, String promptVersion) {
+        this.root = newDigest();
+        update(root, "model");
+        update(root, model);
+        update(root, "prompt_version");
+        update(root, promptVersion);
+    }
+
+    /**
+     * 加入一个片段，片段按加入顺序参与根哈希
+     */
+    public void addSection(String name, String content) {
+        if (digest != null) {
+            throw new IllegalStateException("指纹已计算完成");
+        }
+        MessageDigest leaf = newDigest();
+        update(leaf, content);
+        update(root, name);
+        root.update(leaf.digest());
+    }
+
+    /**
+     * 返回十六进制的根哈希，计算后不能再加入片段
+     */
+    public String digest() {
+        if (digest == null) {
+            digest = toHex(root.digest());
+        }
+        return digest;
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        // 写入长度前缀，避免不同片段拼接后产生相同的字节序列
+        md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        md.update((byte) ':');
+        md.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
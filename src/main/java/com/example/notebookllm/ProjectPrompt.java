@@ -0,0 +1,53 @@
+package com.example.notebookllm;
+
+import java.util.Map;
+
+/**
+ * 为单个项目构建的分析提示词及其内容指纹
+ */
+public class ProjectPrompt {
+    public final String text;
+    public final String fingerprint;
+    // 各片段估算的 token 数，按在提示词中出现的顺序
+    public final Map<String, Integer> sectionTokens;
+    public final int tokenBudget;
+    // 项目自身的内容（路径、文件片段、文件列表），不含说明和输出要求，用于合并多个小项目的请求；可以为 null
+    public final String body;
+
+    public ProjectPrompt(String text, String fingerprint, Map<String, Integer> sectionTokens, int tokenBudget) {
+        this(text, fingerprint, sectionTokens, tokenBudget, null);
+    }
+
+    public ProjectPrompt(String text, String fingerprint, Map<String, Integer> sectionTokens, int tokenBudget, String body) {
+        this.text = text;
+        this.fingerprint = fingerprint;
+        this.sectionTokens = sectionTokens;
+        this.tokenBudget = tokenBudget;
+        this.body = body;
+    }
+
+    public int totalTokens() {
+        int total = 0;
+        for (int t : sectionTokens.values()) total += t;
+        return total;
+    }
+
+    /**
+     * 项目内容的 token 数，不含固定的说明（header）和输出要求（footer）
+     */
+    public int contentTokens() {
+        return totalTokens() - sectionTokens.getOrDefault("header", 0) - sectionTokens.getOrDefault("footer", 0);
+    }
+
+    /**
+     * 各片段 token 用量，例如 "header 180, README 812, pom.xml 310 = 1302/4000"
+     */
+    public String describeTokens() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> e : sectionTokens.entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.getKey()).append(' ').append(e.getValue());
+        }
+        return sb.append(" = ").append(totalTokens()).append('/').append(tokenBudget).toString();
+    }
+}
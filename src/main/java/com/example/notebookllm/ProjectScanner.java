@@ -3,6 +3,8 @@ package com.example.notebookllm;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 // 添加日志导入
 import org.slf4j.Logger;
@@ -12,26 +14,46 @@ public class ProjectScanner {
     // 添加日志实例
     private static final Logger logger = LoggerFactory.getLogger(ProjectScanner.class);
     
-    // 需要忽略的文件夹名称
-    private static final String[] IGNORED_DIRECTORIES = {
-        "target",           // Maven构建输出目录
-        "node_modules",     // Node.js依赖目录
-        ".git",             // Git版本控制目录
-        ".svn",             // SVN版本控制目录
-        ".gradle",          // Gradle缓存目录
-        "build",            // Gradle构建输出目录
-        "dist",             // 常见的构建输出目录
-        "out",              // IntelliJ IDEA输出目录
-        "bin",              // 二进制文件目录
-        ".idea",            // IntelliJ IDEA配置目录
-        ".vscode"           // VS Code配置目录
-    };
-    
+    /**
+     * 按配置选择扫描引擎：scan.engine=nio 使用 {@link NioProjectScanner}，
+     * scan.engine=incremental 使用基于持久化索引的 {@link IncrementalProjectScanner}，
+     * 否则使用基于 File 的扫描（scan.parallelism 大于1时并行）
+     */
+    public static List<File> scanProjects(File root, ConfigManager cfg) {
+        return scanProjects(root, cfg, ScanMonitor.silent());
+    }
+
+    /**
+     * 按配置选择扫描引擎扫描，发现的项目和扫描进度通过 monitor 增量发布，
+     * 调用 {@link ScanMonitor#cancel()} 后扫描尽快结束并返回已找到的项目
+     */
+    public static List<File> scanProjects(File root, ConfigManager cfg, ScanMonitor monitor) {
+        String engine = cfg.getScanEngine();
+        List<File> projects;
+        IgnoreRules rules = IgnoreRules.fromConfig(cfg, root);
+        if ("nio".equalsIgnoreCase(engine)) {
+            projects = new NioProjectScanner(cfg.getScanMaxDepth(), cfg.isScanFollowLinks()).scan(root, rules, monitor);
+        } else if ("incremental".equalsIgnoreCase(engine)) {
+            projects = new IncrementalProjectScanner(new ScanIndex()).scan(root, rules, monitor);
+        } else {
+            projects = scanProjectsParallel(root, cfg.getScanParallelism(), rules, monitor);
+        }
+        monitor.finish();
+        return projects;
+    }
+
     public static List<File> scanProjects(File root) {
+        return scanProjects(root, IgnoreRules.defaults(), ScanMonitor.silent());
+    }
+
+    public static List<File> scanProjects(File root, IgnoreRules rules, ScanMonitor monitor) {
         logger.info("开始扫描项目目录: {}", root.getAbsolutePath());
+        long start = System.currentTimeMillis();
         List<File> projects = new ArrayList<>();
-        scanRecursive(root, projects);
-        logger.info("项目扫描完成，共找到 {} 个项目", projects.size());
+        if (!rules.isIgnored(root)) {
+            scanRecursive(root, rules, projects, monitor);
+        }
+        logger.info("项目扫描完成，共找到 {} 个项目，耗时 {} ms", projects.size(), System.currentTimeMillis() - start);
         
         // 记录找到的项目路径
         for (File project : projects) {
@@ -41,61 +63,166 @@ public class ProjectScanner {
         return projects;
     }
 
-    private static void scanRecursive(File dir, List<File> projects) {
+    /**
+     * 使用 ForkJoinPool 并行扫描项目目录，子目录以任务形式分发并由空闲线程窃取执行。
+     * 结果集及其顺序与 {@link #scanProjects(File)} 完全一致（按目录先序遍历合并）。
+     * @param root 根目录
+     * @param parallelism 并行度，小于等于1时退化为顺序扫描
+     */
+    public static List<File> scanProjectsParallel(File root, int parallelism) {
+        return scanProjectsParallel(root, parallelism, IgnoreRules.defaults(), ScanMonitor.silent());
+    }
+
+    public static List<File> scanProjectsParallel(File root, int parallelism, IgnoreRules rules, ScanMonitor monitor) {
+        if (parallelism <= 1) {
+            return scanProjects(root, rules, monitor);
+        }
+        logger.info("开始并行扫描项目目录: {}，并行度: {}", root.getAbsolutePath(), parallelism);
+        long start = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<File> projects;
+        try {
+            projects = rules.isIgnored(root) ? new ArrayList<>() : pool.invoke(new ScanTask(root, rules, monitor));
+        } finally {
+            pool.shutdown();
+        }
+        logger.info("并行扫描完成，共找到 {} 个项目，耗时 {} ms", projects.size(), System.currentTimeMillis() - start);
+        
+        for (File project : projects) {
+            logger.debug("找到项目: {}", project.getAbsolutePath());
+        }
+        
+        return projects;
+    }
+
+    /**
+     * 扫描一个未被忽略的目录；子目录在列出其内容之前先按忽略规则剪枝
+     */
+    private static void scanRecursive(File dir, IgnoreRules rules, List<File> projects, ScanMonitor monitor) {
+        if (monitor.isCancelled()) {
+            return;
+        }
         if (dir.isDirectory()) {
-            // 检查是否是需要忽略的目录
-            String dirName = dir.getName();
-            
-            // 忽略固定名称的目录
-            for (String ignoredDir : IGNORED_DIRECTORIES) {
-                if (ignoredDir.equalsIgnoreCase(dirName)) {
-                    logger.debug("跳过忽略的目录: {}", dir.getAbsolutePath());
-                    return;
-                }
-            }
-            
-            // 忽略以.plugin开头的目录
-            if (dirName.toLowerCase().startsWith(".plugin")) {
-                logger.debug("跳过.plugin开头的目录: {}", dir.getAbsolutePath());
-                return;
-            }
-            
-            File[] files = dir.listFiles();
+            File[] files = listScannableDirectory(dir);
             if (files == null) {
-                logger.warn("无法列出目录内容: {}", dir.getAbsolutePath());
                 return;
             }
+            monitor.directoryVisited();
             
-            // 检查是否为空目录
-            if (files.length == 0) {
-                logger.debug("跳过空目录: {}", dir.getAbsolutePath());
-                return;
+            if (isProjectDirectory(files)) {
+                projects.add(dir);
+                monitor.projectFound(dir);
+                logger.info("添加项目目录: {}", dir.getAbsolutePath());
             }
             
-            boolean isProject = false;
+            // 递归扫描子目录
+            IgnoreRules childRules = rules.enter(dir, files);
             for (File f : files) {
-                if (f.getName().equalsIgnoreCase("pom.xml") ||
-                    f.getName().equalsIgnoreCase("requirements.txt") ||
-                    f.getName().equalsIgnoreCase("README.md") ||
-                    f.getName().equalsIgnoreCase("build.gradle") ||
-                    f.getName().equalsIgnoreCase("package.json")) {
-                    isProject = true;
-                    logger.debug("识别到项目目录: {}", dir.getAbsolutePath());
-                    break;
+                if (f.isDirectory() && !isIgnored(childRules, f)) {
+                    scanRecursive(f, childRules, projects, monitor);
                 }
             }
+        }
+    }
+
+    private static boolean isIgnored(IgnoreRules rules, File dir) {
+        if (rules.isIgnored(dir)) {
+            logger.debug("跳过忽略的目录: {}", dir.getAbsolutePath());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 列出需要扫描的目录内容；目录无法读取或为空时返回 null
+     */
+    private static File[] listScannableDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            logger.warn("无法列出目录内容: {}", dir.getAbsolutePath());
+            return null;
+        }
+        
+        // 检查是否为空目录
+        if (files.length == 0) {
+            logger.debug("跳过空目录: {}", dir.getAbsolutePath());
+            return null;
+        }
+        return files;
+    }
+
+    /**
+     * 根据目录内容判断是否为项目目录
+     */
+    private static boolean isProjectDirectory(File[] files) {
+        for (File f : files) {
+            if (isProjectMarker(f.getName())) {
+                logger.debug("识别到项目目录: {}", f.getParentFile().getAbsolutePath());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断文件名是否为项目标识文件
+     */
+    static boolean isProjectMarker(String fileName) {
+        return fileName.equalsIgnoreCase("pom.xml") ||
+               fileName.equalsIgnoreCase("requirements.txt") ||
+               fileName.equalsIgnoreCase("README.md") ||
+               fileName.equalsIgnoreCase("build.gradle") ||
+               fileName.equalsIgnoreCase("package.json");
+    }
+
+    /**
+     * 并行扫描任务：处理一个目录，并为每个子目录派生子任务
+     */
+    private static class ScanTask extends RecursiveTask<List<File>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File dir;
+        private final transient IgnoreRules rules;
+        private final transient ScanMonitor monitor;
+
+        ScanTask(File dir, IgnoreRules rules, ScanMonitor monitor) {
+            this.dir = dir;
+            this.rules = rules;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected List<File> compute() {
+            List<File> projects = new ArrayList<>();
+            if (monitor.isCancelled() || !dir.isDirectory()) {
+                return projects;
+            }
+            File[] files = listScannableDirectory(dir);
+            if (files == null) {
+                return projects;
+            }
+            monitor.directoryVisited();
             
-            if (isProject) {
+            if (isProjectDirectory(files)) {
                 projects.add(dir);
+                monitor.projectFound(dir);
                 logger.info("添加项目目录: {}", dir.getAbsolutePath());
             }
             
-            // 递归扫描子目录
+            IgnoreRules childRules = rules.enter(dir, files);
+            List<ScanTask> subTasks = new ArrayList<>();
             for (File f : files) {
-                if (f.isDirectory()) {
-                    scanRecursive(f, projects);
+                if (f.isDirectory() && !isIgnored(childRules, f)) {
+                    ScanTask task = new ScanTask(f, childRules, monitor);
+                    task.fork();
+                    subTasks.add(task);
                 }
             }
+            // 按子目录原始顺序合并结果，保证与顺序扫描一致
+            for (ScanTask task : subTasks) {
+                projects.addAll(task.join());
+            }
+            return projects;
         }
     }
-}
\ No newline at end of file
+}
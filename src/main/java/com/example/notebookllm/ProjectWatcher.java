@@ -0,0 +1,268 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 扫描完成后监听根目录下的文件变化，在项目标识文件（pom.xml、package.json、README.md 等）
+ * 出现或消失时增量通知项目列表的变化。
+ * 文件事件先累积到待处理集合中，在事件静默一段时间后（或累积超过最长等待时间后）统一处理，
+ * 每批变化只回调一次，避免 git checkout 等大量文件操作时频繁刷新界面。
+ * 注册完所有目录后重新扫描一次，扫描期间或注册完成之前新建、删除的项目也会通知。
+ */
+public class ProjectWatcher {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ProjectWatcher.class);
+
+    // 事件静默多久后处理一批变化
+    private static final long DEBOUNCE_MS = 500;
+    // 持续有事件时，一批变化最多等待多久
+    private static final long MAX_DELAY_MS = 3000;
+
+    /**
+     * 项目变化回调，在监听线程中调用
+     */
+    public interface Listener {
+        void projectsChanged(List<File> added, List<File> removed);
+    }
+
+    private final File root;
+    private final IgnoreRules rules;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    // 按路径排序，删除目录时其下的项目是一段连续的范围
+    private final TreeSet<String> knownProjects = new TreeSet<>();
+
+    // 待处理的变化
+    private final Set<Path> dirtyDirs = new LinkedHashSet<>();
+    private final Set<Path> createdDirs = new LinkedHashSet<>();
+    private final Set<Path> deletedPaths = new LinkedHashSet<>();
+    private boolean overflow;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public ProjectWatcher(File root, IgnoreRules rules, List<File> initialProjects, Listener listener) throws IOException {
+        this.root = root;
+        this.rules = rules;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (File p : initialProjects) knownProjects.add(p.getAbsolutePath());
+    }
+
+    /**
+     * 启动监听线程，根目录下所有未被忽略的目录在监听线程中注册，
+     * 大目录树的注册不会阻塞调用方（通常是事件线程）
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "project-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("关闭目录监听失败", e);
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        logger.info("停止监听项目目录: {}", root.getAbsolutePath());
+    }
+
+    private void run() {
+        long firstPending = 0;
+        long lastEvent = 0;
+        try {
+            registerAll(root.toPath(), rules);
+            logger.info("开始监听项目目录: {}，共注册 {} 个目录", root.getAbsolutePath(), keys.size());
+            // 初始扫描结果可能早于目录注册，重新扫描一次补上这段时间内的变化，之后的变化都有事件
+            if (running) {
+                Set<String> before = new LinkedHashSet<>(knownProjects);
+                rescan();
+                notifyChanges(before);
+            }
+            while (running) {
+                WatchKey key = watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                if (key != null) {
+                    collect(key);
+                    if (firstPending == 0) firstPending = now;
+                    lastEvent = now;
+                }
+                boolean pending = firstPending != 0;
+                if (pending && (now - lastEvent >= DEBOUNCE_MS || now - firstPending >= MAX_DELAY_MS)) {
+                    flush();
+                    firstPending = 0;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 监听已停止
+        } catch (Exception e) {
+            logger.error("目录监听线程异常退出", e);
+        }
+    }
+
+    private void collect(WatchKey key) {
+        Path dir = keys.get(key);
+        if (dir != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                WatchEvent.Kind<?> kind = event.kind();
+                if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                String name = child.getFileName().toString();
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    if (Files.isDirectory(child)) {
+                        createdDirs.add(child);
+                    }
+                } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                    deletedPaths.add(child);
+                }
+                if (ProjectScanner.isProjectMarker(name)) {
+                    dirtyDirs.add(dir);
+                }
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * 处理累积的一批变化，并在有项目增减时回调一次
+     */
+    private void flush() {
+        Set<String> before = new LinkedHashSet<>(knownProjects);
+
+        if (overflow) {
+            // 事件丢失时无法判断具体变化，重新扫描整个根目录
+            logger.warn("目录监听事件溢出，重新扫描: {}", root.getAbsolutePath());
+            registerAll(root.toPath(), rules);
+            rescan();
+        } else {
+            for (Path deleted : deletedPaths) {
+                // 删除该路径本身以及路径排在 "目录/" 与 "目录/\uffff" 之间的项目
+                String prefix = deleted.toString() + File.separator;
+                knownProjects.remove(deleted.toString());
+                knownProjects.subSet(prefix, prefix + Character.MAX_VALUE).clear();
+            }
+            // 新建目录按根目录的规则判断，不再回溯其上级目录中的 .gitignore
+            for (Path created : createdDirs) {
+                if (!Files.isDirectory(created) || rules.isIgnored(created)) {
+                    continue;
+                }
+                registerAll(created, rules);
+                for (File p : ProjectScanner.scanProjects(created.toFile(), rules, ScanMonitor.silent())) knownProjects.add(p.getAbsolutePath());
+            }
+            for (Path dir : dirtyDirs) {
+                if (isProjectDirectory(dir)) {
+                    knownProjects.add(dir.toString());
+                } else {
+                    knownProjects.remove(dir.toString());
+                }
+            }
+        }
+        overflow = false;
+        dirtyDirs.clear();
+        createdDirs.clear();
+        deletedPaths.clear();
+        notifyChanges(before);
+    }
+
+    /**
+     * 重新扫描整个根目录，替换已知的项目
+     */
+    private void rescan() {
+        knownProjects.clear();
+        for (File p : ProjectScanner.scanProjects(root, rules, ScanMonitor.silent())) knownProjects.add(p.getAbsolutePath());
+    }
+
+    /**
+     * 与之前的项目集合比较，有增减时回调一次
+     */
+    private void notifyChanges(Set<String> before) {
+        List<File> added = new ArrayList<>();
+        List<File> removed = new ArrayList<>();
+        for (String p : knownProjects) {
+            if (!before.contains(p)) added.add(new File(p));
+        }
+        for (String p : before) {
+            if (!knownProjects.contains(p)) removed.add(new File(p));
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            logger.info("检测到项目变化 - 新增: {}，移除: {}", added.size(), removed.size());
+            listener.projectsChanged(added, removed);
+        }
+    }
+
+    private static boolean isProjectDirectory(Path dir) {
+        String[] names = dir.toFile().list();
+        if (names == null) {
+            return false;
+        }
+        for (String name : names) {
+            if (ProjectScanner.isProjectMarker(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 递归注册目录及其未被忽略的子目录
+     */
+    private void registerAll(Path start, IgnoreRules dirRules) {
+        File dir = start.toFile();
+        if (!running || !dir.isDirectory()) {
+            return;
+        }
+        if (!start.equals(root.toPath()) && dirRules.isIgnored(start)) {
+            return;
+        }
+        try {
+            WatchKey key = start.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            keys.put(key, start);
+        } catch (IOException e) {
+            logger.warn("无法监听目录: {}", start, e);
+            return;
+        }
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        IgnoreRules childRules = dirRules.enter(dir, children);
+        for (File child : children) {
+            // 不跟随符号链接，避免链接循环导致重复注册
+            if (!child.isDirectory() || Files.isSymbolicLink(child.toPath())) continue;
+            registerAll(child.toPath(), childRules);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.notebookllm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 模型响应缓存，保存在 H2 数据库的 response_cache 表中。
+ * 键为模型、提示词和请求参数的 SHA-256，流式和非流式请求共用同一份缓存；
+ * 缓存总大小超过 cache.maxMegabytes 时按最近使用时间淘汰最旧的记录。
+ * 数据库出错时只记录日志，按未命中处理，不影响模型调用。
+ */
+public class ResponseCache {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    // 每次淘汰最多取出的记录数
+    private static final int EVICT_BATCH = 32;
+
+    // 缓存表的总大小，所有实例共用同一张表；首次使用时统计一次，之后随写入和淘汰增减，不再每次写入都求和
+    private static final Object SIZE_LOCK = new Object();
+    private static long totalBytes = -1;
+
+    private final long maxBytes;
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        try (Connection conn = HistoryManager.openConnection()) {
+            Statement stmt = conn.createStatement();
+            stmt.execute("CREATE TABLE IF NOT EXISTS response_cache (" +
+                    "cache_key VARCHAR(64) PRIMARY KEY, " +
+                    "model VARCHAR(255), " +
+                    "content CLOB, " +
+                    "finish_reason VARCHAR(32), " +
+                    "prompt_tokens INT, " +
+                    "completion_tokens INT, " +
+                    "total_tokens INT, " +
+                    "size_bytes BIGINT, " +
+                    "created_at BIGINT, " +
+                    "last_used_at BIGINT)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_response_cache_last_used ON response_cache(last_used_at)");
+            logger.debug("响应缓存表已准备就绪，容量上限: {} 字节", maxBytes);
+        } catch (SQLException e) {
+            logger.error("响应缓存表初始化失败", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 按配置创建缓存，cache.maxMegabytes 为 0 或缓存表无法初始化（例如数据库文件被占用）时返回 null 表示不使用缓存
+     */
+    public static ResponseCache fromConfig(ConfigManager cfg) {
+        long maxMegabytes = cfg.getInt("cache.maxMegabytes", 64);
+        if (maxMegabytes <= 0) {
+            return null;
+        }
+        try {
+            return new ResponseCache(maxMegabytes * 1024 * 1024);
+        } catch (RuntimeException e) {
+            logger.warn("响应缓存不可用，本次不使用缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计算缓存键：模型、提示词以及影响输出内容的请求参数
+     */
+    public static String key(String model, String prompt, ChatOptions options) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(md, model);
+        update(md, prompt);
+        update(md, options.temperature == null ? null : options.temperature.toString());
+        update(md, options.maxTokens == null ? null : options.maxTokens.toString());
+        update(md, options.responseFormat);
+        return ProjectFingerprint.toHex(md.digest());
+    }
+
+    private static void update(MessageDigest md, String s) {
+        if (s == null) {
+            // 与空字符串区分
+            md.update((byte) '-');
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        md.update((byte) ':');
+        md.update(bytes);
+    }
+
+    /**
+     * 查找缓存的响应并更新最近使用时间
+     * @return 缓存的结果，未命中时返回 null
+     */
+    public CompletionResult get(String key) {
+        try (Connection conn = HistoryManager.openConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT content, finish_reason, prompt_tokens, completion_tokens, total_tokens FROM response_cache WHERE cache_key = ?");
+            ps.setString(1, key);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            CompletionResult result = new CompletionResult(rs.getString("content"));
+            result.finishReason = rs.getString("finish_reason");
+            result.promptTokens = rs.getInt("prompt_tokens");
+            result.completionTokens = rs.getInt("completion_tokens");
+            result.totalTokens = rs.getInt("total_tokens");
+            result.doneReceived = true;
+            result.cached = true;
+
+            PreparedStatement touch = conn.prepareStatement("UPDATE response_cache SET last_used_at = ? WHERE cache_key = ?");
+            touch.setLong(1, System.currentTimeMillis());
+            touch.setString(2, key);
+            touch.executeUpdate();
+            logger.debug("响应缓存命中 - 键: {}，内容长度: {}", key, result.content.length());
+            return result;
+        } catch (SQLException e) {
+            logger.error("读取响应缓存失败 - 键: {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 保存响应，超出容量时淘汰最久未使用的记录
+     */
+    public void put(String key, String model, CompletionResult result) {
+        if (result.content == null || result.content.isEmpty()) {
+            return;
+        }
+        long size = result.content.getBytes(StandardCharsets.UTF_8).length;
+        if (size > maxBytes) {
+            logger.debug("响应大小 {} 字节超过缓存容量，不缓存", size);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 查询旧记录、写入和更新总大小在同一把锁内完成，并发写入时总大小不会算错
+        synchronized (SIZE_LOCK) {
+            try (Connection conn = HistoryManager.openConnection()) {
+                // 同一个键已有记录时 MERGE 替换它，总大小只增加差值
+                PreparedStatement old = conn.prepareStatement("SELECT size_bytes FROM response_cache WHERE cache_key = ?");
+                old.setString(1, key);
+                ResultSet oldRs = old.executeQuery();
+                long oldSize = oldRs.next() ? oldRs.getLong(1) : 0;
+
+                PreparedStatement merge = conn.prepareStatement(
+                    "MERGE INTO response_cache (cache_key, model, content, finish_reason, prompt_tokens, completion_tokens, total_tokens, size_bytes, created_at, last_used_at) " +
+                    "KEY (cache_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                merge.setString(1, key);
+                merge.setString(2, model);
+                merge.setString(3, result.content);
+                merge.setString(4, result.finishReason);
+                merge.setInt(5, result.promptTokens);
+                merge.setInt(6, result.completionTokens);
+                merge.setInt(7, result.totalTokens);
+                merge.setLong(8, size);
+                merge.setLong(9, now);
+                merge.setLong(10, now);
+                merge.executeUpdate();
+
+                if (totalBytes < 0) {
+                    ResultSet total = conn.createStatement().executeQuery("SELECT COALESCE(SUM(size_bytes), 0) FROM response_cache");
+                    total.next();
+                    totalBytes = total.getLong(1);
+                } else {
+                    totalBytes += size - oldSize;
+                }
+                if (totalBytes > maxBytes) {
+                    evict(conn);
+                }
+            } catch (SQLException e) {
+                // 写入是否成功不确定，下次写入时重新统计总大小
+                totalBytes = -1;
+                logger.error("写入响应缓存失败 - 键: {}", key, e);
+            }
+        }
+    }
+
+    /**
+     * 按最近使用时间从旧到新分批淘汰，直到总大小不超过容量（调用方持有 SIZE_LOCK）
+     */
+    private void evict(Connection conn) throws SQLException {
+        PreparedStatement oldest = conn.prepareStatement(
+            "SELECT cache_key, size_bytes FROM response_cache ORDER BY last_used_at LIMIT " + EVICT_BATCH);
+        PreparedStatement delete = conn.prepareStatement("DELETE FROM response_cache WHERE cache_key = ?");
+        int evicted = 0;
+        while (totalBytes > maxBytes) {
+            List<String> victims = new ArrayList<>();
+            long freed = 0;
+            ResultSet rs = oldest.executeQuery();
+            while (totalBytes - freed > maxBytes && rs.next()) {
+                victims.add(rs.getString("cache_key"));
+                freed += rs.getLong("size_bytes");
+            }
+            if (victims.isEmpty()) {
+                // 表已经空了，计数与表不一致，重新统计
+                totalBytes = -1;
+                break;
+            }
+            for (String victim : victims) {
+                delete.setString(1, victim);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+            totalBytes -= freed;
+            evicted += victims.size();
+        }
+        logger.info("响应缓存超出容量，淘汰 {} 条最久未使用的记录", evicted);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模型调用的重试策略：网络错误、408、429 和 5xx 可以重试，等待时间按指数退避并加入随机抖动；
+ * 服务端返回 Retry-After 时以其为准。
+ */
+public class RetryPolicy {
+    // Retry-After 最长只等待这么久，避免异常的响应头让批量分析停滞
+    private static final long MAX_RETRY_AFTER_MS = 10 * 60 * 1000L;
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    // 一次调用因所有端点熔断而暂停的总时长上限，超过后放弃该调用
+    private final long maxPauseMs;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this(maxAttempts, baseDelayMs, maxDelayMs, 15 * 60 * 1000L);
+    }
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long maxPauseMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.maxPauseMs = Math.max(0, maxPauseMs);
+    }
+
+    public static RetryPolicy fromConfig(ConfigManager cfg) {
+        return new RetryPolicy(cfg.getInt("api.retry.maxAttempts", 3),
+                cfg.getInt("api.retry.baseDelayMs", 1000),
+                cfg.getInt("api.retry.maxDelayMs", 30000),
+                cfg.getInt("api.circuit.maxPauseSeconds", 900) * 1000L);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getMaxPauseMillis() {
+        return maxPauseMs;
+    }
+
+    /**
+     * 判断失败是否值得重试：请求参数错误（4xx）和线程中断不重试
+     */
+    public boolean isRetryable(IOException e) {
+        if (e instanceof LLMHttpException) {
+            int code = ((LLMHttpException) e).getStatusCode();
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * 第 attempt 次失败后的等待时间（attempt 从 1 开始）
+     */
+    public long delayMillis(int attempt, IOException e) {
+        if (e instanceof LLMHttpException) {
+            long retryAfter = ((LLMHttpException) e).getRetryAfterMillis();
+            if (retryAfter >= 0) {
+                return Math.min(retryAfter, MAX_RETRY_AFTER_MS);
+            }
+        }
+        long exp = baseDelayMs << Math.min(attempt - 1, 20);
+        long cap = Math.min(maxDelayMs, exp);
+        // 抖动：在 [cap/2, cap] 之间随机，避免并发的调用同时重试
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.notebookllm;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 持久化的目录扫描索引，保存在 H2 数据库的 scan_index 表中。
+ * 每个已扫描目录记录其修改时间、列目录的时间、是否为项目以及子目录名称列表，
+ * 供 {@link IncrementalProjectScanner} 在重新扫描时跳过未变化的目录。
+ */
+public class ScanIndex {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(ScanIndex.class);
+
+    /**
+     * 一个目录的索引记录
+     */
+    public static class Entry {
+        public long mtime;
+        public long checkedAt;
+        public boolean project;
+        public List<String> children;
+
+        public Entry(long mtime, long checkedAt, boolean project, List<String> children) {
+            this.mtime = mtime;
+            this.checkedAt = checkedAt;
+            this.project = project;
+            this.children = children;
+        }
+    }
+
+    public ScanIndex() {
+        try (Connection conn = HistoryManager.openConnection()) {
+            Statement stmt = conn.createStatement();
+            stmt.execute("CREATE TABLE IF NOT EXISTS scan_index (" +
+                    "dir_path VARCHAR(4096) PRIMARY KEY, " +
+                    "mtime BIGINT, " +
+                    "checked_at BIGINT, " +
+                    "is_project BOOLEAN, " +
+                    "children CLOB)");
+            logger.debug("扫描索引表已准备就绪");
+        } catch (SQLException e) {
+            logger.error("扫描索引表初始化失败", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 加载根目录（含）之下的全部索引记录
+     */
+    public Map<String, Entry> load(String rootPath) {
+        Map<String, Entry> entries = new HashMap<>();
+        try (Connection conn = HistoryManager.openConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT dir_path, mtime, checked_at, is_project, children FROM scan_index " +
+                "WHERE dir_path = ? OR dir_path LIKE ? ESCAPE '!'");
+            ps.setString(1, rootPath);
+            ps.setString(2, escapeLike(withSeparator(rootPath)) + "%");
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                String children = rs.getString("children");
+                entries.put(rs.getString("dir_path"), new Entry(
+                    rs.getLong("mtime"),
+                    rs.getLong("checked_at"),
+                    rs.getBoolean("is_project"),
+                    children == null || children.isEmpty()
+                        ? new ArrayList<>()
+                        : new ArrayList<>(Arrays.asList(children.split("\n")))
+                ));
+            }
+            logger.info("加载扫描索引完成 - 根目录: {}，共 {} 条记录", rootPath, entries.size());
+        } catch (SQLException e) {
+            logger.error("加载扫描索引失败 - 根目录: {}", rootPath, e);
+        }
+        return entries;
+    }
+
+    /**
+     * 批量写入变化的目录记录，并删除已不存在的目录记录
+     */
+    public void update(Map<String, Entry> changed, Collection<String> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        try (Connection conn = HistoryManager.openConnection()) {
+            conn.setAutoCommit(false);
+            PreparedStatement merge = conn.prepareStatement(
+                "MERGE INTO scan_index (dir_path, mtime, checked_at, is_project, children) KEY (dir_path) VALUES (?, ?, ?, ?, ?)");
+            for (Map.Entry<String, Entry> e : changed.entrySet()) {
+                Entry entry = e.getValue();
+                merge.setString(1, e.getKey());
+                merge.setLong(2, entry.mtime);
+                merge.setLong(3, entry.checkedAt);
+                merge.setBoolean(4, entry.project);
+                merge.setString(5, String.join("\n", entry.children));
+                merge.addBatch();
+            }
+            merge.executeBatch();
+
+            PreparedStatement delete = conn.prepareStatement("DELETE FROM scan_index WHERE dir_path = ?");
+            for (String path : removed) {
+                delete.setString(1, path);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+            conn.commit();
+            logger.info("扫描索引已更新 - 更新 {} 条，删除 {} 条", changed.size(), removed.size());
+        } catch (SQLException e) {
+            logger.error("扫描索引更新失败", e);
+        }
+    }
+
+    private static String withSeparator(String path) {
+        return path.endsWith(java.io.File.separator) ? path : path + java.io.File.separator;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.notebookllm;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扫描过程的监视器：向监听者增量发布发现的项目、定期报告扫描进度，并支持取消扫描。
+ * 各扫描引擎在访问目录和发现项目时调用本类，并发扫描时可被多个线程同时调用。
+ */
+public class ScanMonitor {
+    // 进度报告的最小间隔
+    private static final long REPORT_INTERVAL_MS = 200;
+
+    /**
+     * 扫描监听者，在扫描线程中调用，实现需保证线程安全
+     */
+    public interface Listener {
+        void projectFound(File project);
+
+        void progress(long directoriesVisited, double directoriesPerSecond);
+    }
+
+    private static final Listener NO_OP = new Listener() {
+        @Override
+        public void projectFound(File project) {
+        }
+
+        @Override
+        public void progress(long directoriesVisited, double directoriesPerSecond) {
+        }
+    };
+
+    private final Listener listener;
+    private final AtomicLong visited = new AtomicLong();
+    private final AtomicLong lastReport = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    public ScanMonitor(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 不发布任何事件的监视器，用于同步扫描
+     */
+    public static ScanMonitor silent() {
+        return new ScanMonitor(NO_OP);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getDirectoriesVisited() {
+        return visited.get();
+    }
+
+    public double getDirectoriesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return seconds > 0 ? visited.get() / seconds : 0;
+    }
+
+    /**
+     * 记录访问了一个目录，并按固定间隔报告进度
+     */
+    void directoryVisited() {
+        long count = visited.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = lastReport.get();
+        if (now - last >= REPORT_INTERVAL_MS && lastReport.compareAndSet(last, now)) {
+            listener.progress(count, getDirectoriesPerSecond());
+        }
+    }
+
+    void projectFound(File project) {
+        listener.projectFound(project);
+    }
+
+    /**
+     * 扫描结束时报告最终进度
+     */
+    void finish() {
+        listener.progress(visited.get(), getDirectoriesPerSecond());
+    }
+}
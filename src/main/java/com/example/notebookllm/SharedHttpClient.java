@@ -0,0 +1,106 @@
+package com.example.notebookllm;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// 添加日志导入
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内共享的 OkHttpClient：所有 LLMClient 共用同一个连接池和调度器。
+ * HTTPS 端点通过 ALPN 协商 HTTP/2，多个并发请求复用同一条连接。
+ * 启动时和修改设置后调用 {@link #warmUp(ConfigManager)} 预先建立到模型服务的连接，
+ * 第一个项目分析时不再需要等待 TCP/TLS 握手。
+ */
+public final class SharedHttpClient {
+    // 添加日志实例
+    private static final Logger logger = LoggerFactory.getLogger(SharedHttpClient.class);
+
+    private static OkHttpClient client;
+    private static int poolMaxIdle;
+    private static long poolKeepAliveSeconds;
+
+    private SharedHttpClient() {
+    }
+
+    /**
+     * 返回共享客户端，首次调用时按当前配置创建
+     */
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            configure(new ConfigManager());
+        }
+        return client;
+    }
+
+    /**
+     * 按配置创建客户端；连接池参数未变化时保留现有客户端和已建立的连接
+     */
+    private static synchronized void configure(ConfigManager cfg) {
+        int maxIdle = cfg.getHttpPoolMaxIdle();
+        long keepAlive = cfg.getHttpPoolKeepAliveSeconds();
+        if (client != null && maxIdle == poolMaxIdle && keepAlive == poolKeepAliveSeconds) {
+            return;
+        }
+        OkHttpClient previous = client;
+        client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdle, keepAlive, TimeUnit.SECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(300, TimeUnit.SECONDS)
+                .writeTimeout(300, TimeUnit.SECONDS)
+                .readTimeout(600, TimeUnit.SECONDS)
+                .build();
+        poolMaxIdle = maxIdle;
+        poolKeepAliveSeconds = keepAlive;
+        logger.info("HTTP客户端连接池 - 最大空闲连接: {}，保持时间: {} 秒", maxIdle, keepAlive);
+        if (previous != null) {
+            // 正在进行的请求不受影响，只清理空闲连接
+            previous.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * 按最新配置更新客户端，并在后台向每个模型服务端点发送一个 HEAD 请求建立连接。
+     * 不关心响应状态（POST 接口通常返回 405），连接建立后会留在连接池中供后续请求复用。
+     */
+    public static void warmUp(ConfigManager cfg) {
+        configure(cfg);
+        for (String apiUrl : cfg.getApiUrls()) {
+            warmUp(apiUrl);
+        }
+    }
+
+    private static void warmUp(String apiUrl) {
+        HttpUrl url = HttpUrl.parse(apiUrl);
+        if (url == null) {
+            logger.debug("API 地址无效，跳过连接预热: {}", apiUrl);
+            return;
+        }
+        long start = System.nanoTime();
+        Request request = new Request.Builder().url(url).head().build();
+        get().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                logger.info("已预先建立到 {} 的连接（{}，{} ms）", url.host(), response.protocol(),
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.warn("预先建立到 {} 的连接失败: {}", url.host(), e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.notebookllm;
+
+/**
+ * 本地 token 数估算器，用于在不调用模型分词器的情况下控制提示词长度。
+ * 通过配置项 prompt.tokenizer 选择实现：heuristic（默认）或 chars。
+ */
+public interface TokenEstimator {
+
+    int estimate(CharSequence text);
+
+    /**
+     * 按字符类别估算：中日韩文字每字约 1 个 token，连续的字母数字约每 4 个字符 1 个 token，
+     * 其他标点符号各算 1 个 token，空白不计。对常见 BPE 分词器偏保守。
+     */
+    TokenEstimator HEURISTIC = text -> {
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                tokens += (run + 3) / 4;
+                run = 0;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (Character.isLowSurrogate(c)) {
+                continue;
+            }
+            tokens++;
+        }
+        if (run > 0) {
+            tokens += (run + 3) / 4;
+        }
+        return tokens;
+    };
+
+    /**
+     * 简单按每 4 个字符 1 个 token 估算
+     */
+    TokenEstimator CHARS = text -> (text.length() + 3) / 4;
+
+    static TokenEstimator fromConfig(ConfigManager cfg) {
+        String name = cfg.get("prompt.tokenizer", "heuristic").trim();
+        if ("chars".equalsIgnoreCase(name)) {
+            return CHARS;
+        }
+        return HEURISTIC;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.notebookllm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+class AnalysisEventParserTest {
+
+    private static final String RESULT = "{\"project_name\": \"demo\", \"summary\": \"含有 } 和 ] 的摘要\", "
+            + "\"modules\": [{\"name\": \"core\"}, {\"name\": \"ui\"}], \"risk_level\": \"low\"}";
+
+    /**
+     * 记录收到的事件，每个事件一行
+     */
+    private static class Recorder implements AnalysisEventParser.Listener {
+        final List<String> events = new ArrayList<>();
+        final List<ObjectNode> results = new ArrayList<>();
+
+        @Override
+        public void field(int result, String name, String value) {
+            events.add(result + " field " + name + "=" + value);
+        }
+
+        @Override
+        public void item(int result, String field, JsonNode item) {
+            events.add(result + " item " + field + "=" + item);
+        }
+
+        @Override
+        public void resultEnd(int result, ObjectNode node) {
+            events.add(result + " end");
+            results.add(node);
+        }
+    }
+
+    private static Recorder parse(String response, int chunkSize) {
+        Recorder recorder = new Recorder();
+        AnalysisEventParser parser = new AnalysisEventParser(recorder);
+        for (int i = 0; i < response.length() && !parser.isFinished(); i += chunkSize) {
+            parser.feed(response.substring(i, Math.min(response.length(), i + chunkSize)));
+        }
+        return recorder;
+    }
+
+    private static final List<String> EXPECTED = List.of(
+            "0 field project_name=demo",
+            "0 field summary=含有 } 和 ] 的摘要",
+            "0 item modules={\"name\":\"core\"}",
+            "0 item modules={\"name\":\"ui\"}",
+            "0 field risk_level=low",
+            "0 end");
+
+    @Test
+    void proseBeforeJsonIsSkipped() {
+        String response = "好的，以下是对项目 [demo] 的分析（见 {附录}）：\n" + RESULT + "\n以上。";
+        assertEquals(EXPECTED, parse(response, response.length()).events);
+    }
+
+    @Test
+    void filteredOutputWithBracketsInProse() {
+        String response = "好的，以下是对项目 [demo] 的分析：\n```json\n" + RESULT + "\n```\n以上就是全部内容。";
+        JsonResultFilter filter = new JsonResultFilter();
+        Recorder recorder = new Recorder();
+        AnalysisEventParser parser = new AnalysisEventParser(recorder);
+        for (int i = 0; i < response.length() && !filter.isComplete(); i += 4) {
+            parser.feed(filter.accept(response.substring(i, Math.min(response.length(), i + 4))));
+        }
+        assertTrue(parser.isFinished());
+        assertEquals(EXPECTED, recorder.events);
+    }
+
+    @Test
+    void rawResponseWithThinkBlockAndFence() {
+        String response = "<think>\n{先看看 [a]}\n[1]\n</think>\n[注意] 以下为结果\n[1]\n```json\n" + RESULT + "\n```";
+        for (int size : new int[] { 1, 2, 3, 5, 8, response.length() }) {
+            assertEquals(EXPECTED, parse(response, size).events, "片段长度 " + size);
+        }
+    }
+
+    @Test
+    void tokensSplitAcrossChunks() {
+        for (int size = 1; size <= 7; size++) {
+            assertEquals(EXPECTED, parse(RESULT, size).events, "片段长度 " + size);
+        }
+    }
+
+    @Test
+    void batchArrayNumbersEachResult() {
+        String response = "合并分析 [2 个项目]：\n[{\"project_path\": \"/a\", \"summary\": \"A\"},\n"
+                + " {\"project_path\": \"/b\", \"tags\": [\"x\"]}]\n结束";
+        for (int size : new int[] { 1, 3, response.length() }) {
+            Recorder recorder = parse(response, size);
+            assertEquals(List.of(
+                    "0 field project_path=/a",
+                    "0 field summary=A",
+                    "0 end",
+                    "1 field project_path=/b",
+                    "1 item tags=\"x\"",
+                    "1 end"), recorder.events, "片段长度 " + size);
+            assertEquals("/b", recorder.results.get(1).get("project_path").asText());
+        }
+    }
+
+    @Test
+    void textWithoutResultProducesNoEvents() {
+        Recorder recorder = new Recorder();
+        AnalysisEventParser parser = new AnalysisEventParser(recorder);
+        parser.feed("抱歉，无法分析项目 [demo]。\n[1] 文件过大\n");
+        parser.feed("{坏的 JSON\n");
+        assertFalse(parser.isFinished());
+        assertTrue(recorder.events.isEmpty());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.notebookllm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * 对比 {@link ChatStreamDecoder} 与重构前按行读取 + readTree 的解析结果
+ */
+class ChatStreamDecoderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 解码得到的内容片段和记录到 CompletionResult 中的信息
+     */
+    private static String describe(List<String> chunks, CompletionResult result) {
+        return chunks + " finish=" + result.finishReason
+                + " usage=" + result.promptTokens + "/" + result.completionTokens + "/" + result.totalTokens
+                + " done=" + result.doneReceived;
+    }
+
+    private static String decode(BufferedSource source) throws IOException {
+        CompletionResult result = new CompletionResult("");
+        ChatStreamDecoder decoder = new ChatStreamDecoder(source, result);
+        List<String> chunks = new ArrayList<>();
+        String c;
+        while ((c = decoder.nextContent()) != null) {
+            chunks.add(c);
+        }
+        return describe(chunks, result);
+    }
+
+    private static String decode(String stream) throws IOException {
+        return decode(new Buffer().writeUtf8(stream));
+    }
+
+    /**
+     * 与重构前 LLMClient.analyzeStream 相同的解析方式
+     */
+    private static String decodeWithTree(String stream) throws IOException {
+        BufferedSource src = new Buffer().writeUtf8(stream);
+        CompletionResult result = new CompletionResult("");
+        List<String> chunks = new ArrayList<>();
+        while (!src.exhausted()) {
+            String line = src.readUtf8Line();
+            if (line == null) break;
+            line = line.trim();
+            if (line.isEmpty() || !line.startsWith("data: ")) continue;
+            String data = line.substring(6).trim();
+            if ("[DONE]".equals(data)) {
+                result.doneReceived = true;
+                break;
+            }
+            try {
+                JsonNode root = MAPPER.readTree(data);
+                JsonNode choices = root.path("choices");
+                if (choices.isArray() && choices.size() > 0) {
+                    JsonNode first = choices.get(0);
+                    String c = null;
+                    if (first.has("delta") && first.get("delta").has("content")) {
+                        c = first.get("delta").get("content").asText();
+                    } else if (first.has("message") && first.get("message").has("content")) {
+                        c = first.get("message").get("content").asText();
+                    } else if (first.has("text")) {
+                        c = first.get("text").asText();
+                    }
+                    if (c != null && !c.isEmpty()) chunks.add(c);
+                    JsonNode finish = first.get("finish_reason");
+                    if (finish != null && !finish.isNull()) result.finishReason = finish.asText();
+                }
+                JsonNode usage = root.get("usage");
+                if (usage != null && usage.isObject()) {
+                    result.promptTokens = usage.path("prompt_tokens").asInt(-1);
+                    result.completionTokens = usage.path("completion_tokens").asInt(-1);
+                    result.totalTokens = usage.path("total_tokens").asInt(-1);
+                }
+            } catch (Exception ex) {
+                // 重构前同样跳过格式错误的数据块
+            }
+        }
+        return describe(chunks, result);
+    }
+
+    private static String delta(String content) {
+        return "data: {\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content
+                + "\"},\"finish_reason\":null}]}\n\n";
+    }
+
+    private static final String TAIL = "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+            + "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3,\"total_tokens\":15}}\n\n"
+            + "data: [DONE]\n\n";
+
+    private static void assertSameAsTree(String stream) throws IOException {
+        String expected = decodeWithTree(stream);
+        assertEquals(expected, decode(stream));
+    }
+
+    @Test
+    void plainStream() throws IOException {
+        String stream = ": keep-alive\n\n" + delta("你好") + delta("，\\\"世界\\\"\\n") + delta("") + TAIL;
+        assertSameAsTree(stream);
+        assertEquals("[你好, ，\"世界\"\n] finish=stop usage=12/3/15 done=true", decode(stream));
+    }
+
+    @Test
+    void crlfLineEndings() throws IOException {
+        String stream = (delta("a") + delta("b") + TAIL).replace("\n", "\r\n");
+        assertSameAsTree(stream);
+        assertEquals(decode(delta("a") + delta("b") + TAIL), decode(stream));
+    }
+
+    @Test
+    void eventFieldsOtherThanDataAreIgnored() throws IOException {
+        String stream = "event: message\nid: 1\n" + delta("x") + "retry: 1000\n" + delta("y") + TAIL;
+        assertSameAsTree(stream);
+    }
+
+    @Test
+    void multiLineDataIsJoinedWithNewlines() throws IOException {
+        // 按 SSE 规范，同一事件的多行 data 以换行连接后作为一个 JSON 解析
+        String multiLine = "data: {\"choices\":[{\"index\":0,\n"
+                + "data:  \"delta\":{\"content\":\"多行\"},\n"
+                + "data: \"finish_reason\":null}]}\n\n";
+        String singleLine = delta("多行");
+        assertEquals(decodeWithTree(singleLine + TAIL), decode(multiLine + TAIL));
+    }
+
+    @Test
+    void lastEventWithoutTrailingBlankLine() throws IOException {
+        String stream = delta("a") + "data: {\"choices\":[{\"delta\":{\"content\":\"b\"},\"finish_reason\":\"length\"}]}";
+        assertSameAsTree(stream);
+        assertEquals("[a, b] finish=length usage=-1/-1/-1 done=false", decode(stream));
+    }
+
+    @Test
+    void doneStopsReading() throws IOException {
+        String stream = delta("a") + "data:  [DONE] \n\n" + delta("ignored");
+        assertSameAsTree(stream);
+        assertTrue(decode(stream).endsWith("done=true"));
+        assertFalse(decode(stream).contains("ignored"));
+    }
+
+    @Test
+    void malformedChunksAreSkipped() throws IOException {
+        String stream = delta("a") + "data: {\"choices\":[{\"delta\":\n\n" + "data: not json\n\n"
+                + "data: []\n\n" + delta("b") + TAIL;
+        assertSameAsTree(stream);
+        assertEquals("[a, b] finish=stop usage=12/3/15 done=true", decode(stream));
+    }
+
+    @Test
+    void messageAndTextFields() throws IOException {
+        String stream = "data: {\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"m\"}}]}\n\n"
+                + "data: {\"choices\":[{\"text\":\"t\",\"finish_reason\":\"stop\"}]}\n\n";
+        assertSameAsTree(stream);
+    }
+
+    @Test
+    void bytesArrivingOneAtATime() throws IOException {
+        // 网络读取时一行可能分多次到达，多字节字符也可能被拆开
+        String stream = (delta("逐字") + delta("到达") + TAIL).replace("\n\n", "\r\n\r\n");
+        Buffer all = new Buffer().writeUtf8(stream);
+        Source trickle = new Source() {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                if (all.exhausted()) return -1;
+                sink.write(all, 1);
+                return 1;
+            }
+
+            @Override
+            public Timeout timeout() {
+                return Timeout.NONE;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertEquals(decodeWithTree(stream), decode(Okio.buffer(trickle)));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.notebookllm;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IgnoreRulesTest {
+
+    @TempDir
+    Path root;
+
+    /**
+     * 在 root 写入 .gitignore，返回进入 root 后适用于其子目录的规则
+     */
+    private IgnoreRules rootRules(String... lines) throws IOException {
+        writeGitignore(root, lines);
+        ConfigManager cfg = new ConfigManager();
+        cfg.set("scan.ignore", "");
+        cfg.set("scan.gitignore", "true");
+        return IgnoreRules.fromConfig(cfg, root.toFile()).enter(root);
+    }
+
+    private static void writeGitignore(Path dir, String... lines) throws IOException {
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(".gitignore"), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void laterNegationReincludes() throws IOException {
+        IgnoreRules rules = rootRules("gen*", "!gen-keep");
+        assertTrue(rules.isIgnored(root.resolve("gen-out")));
+        assertFalse(rules.isIgnored(root.resolve("gen-keep")));
+    }
+
+    @Test
+    void lastMatchingRuleWins() throws IOException {
+        IgnoreRules rules = rootRules("!keep", "keep");
+        assertTrue(rules.isIgnored(root.resolve("keep")));
+    }
+
+    @Test
+    void nestedGitignoreOverridesParent() throws IOException {
+        IgnoreRules rules = rootRules("gen");
+        writeGitignore(root.resolve("sub"), "!gen", "local");
+        IgnoreRules sub = rules.enter(root.resolve("sub"));
+        assertTrue(rules.isIgnored(root.resolve("gen")));
+        assertFalse(sub.isIgnored(root.resolve("sub/gen")));
+        assertTrue(sub.isIgnored(root.resolve("sub/local")));
+        assertFalse(rules.isIgnored(root.resolve("local")));
+    }
+
+    @Test
+    void leadingSlashAnchorsToGitignoreDirectory() throws IOException {
+        IgnoreRules rules = rootRules("/logs");
+        assertTrue(rules.isIgnored(root.resolve("logs")));
+        assertFalse(rules.isIgnored(root.resolve("a/logs")));
+    }
+
+    @Test
+    void middleSlashAnchorsButTrailingSlashDoesNot() throws IOException {
+        IgnoreRules rules = rootRules("docs/tmp", "cache/");
+        assertTrue(rules.isIgnored(root.resolve("docs/tmp")));
+        assertFalse(rules.isIgnored(root.resolve("x/docs/tmp")));
+        assertTrue(rules.isIgnored(root.resolve("cache")));
+        assertTrue(rules.isIgnored(root.resolve("a/b/cache")));
+    }
+
+    @Test
+    void leadingDoubleStarMatchesAnyDepth() throws IOException {
+        IgnoreRules rules = rootRules("**/foo", "**/x/y");
+        assertTrue(rules.isIgnored(root.resolve("foo")));
+        assertTrue(rules.isIgnored(root.resolve("a/b/foo")));
+        assertTrue(rules.isIgnored(root.resolve("x/y")));
+        assertTrue(rules.isIgnored(root.resolve("a/x/y")));
+        assertFalse(rules.isIgnored(root.resolve("x/z")));
+    }
+
+    @Test
+    void middleDoubleStarMatchesZeroOrMoreDirectories() throws IOException {
+        IgnoreRules rules = rootRules("a/**/b");
+        assertTrue(rules.isIgnored(root.resolve("a/b")));
+        assertTrue(rules.isIgnored(root.resolve("a/x/b")));
+        assertTrue(rules.isIgnored(root.resolve("a/x/y/b")));
+        assertFalse(rules.isIgnored(root.resolve("c/a/b")));
+        assertFalse(rules.isIgnored(root.resolve("a/bb")));
+    }
+
+    @Test
+    void trailingDoubleStarMatchesContentsOnly() throws IOException {
+        IgnoreRules rules = rootRules("vendor/**");
+        assertFalse(rules.isIgnored(root.resolve("vendor")));
+        assertTrue(rules.isIgnored(root.resolve("vendor/lib")));
+        assertTrue(rules.isIgnored(root.resolve("vendor/lib/deep")));
+    }
+
+    @Test
+    void bracesAreLiteral() throws IOException {
+        IgnoreRules rules = rootRules("{a,b}");
+        assertTrue(rules.isIgnored(root.resolve("{a,b}")));
+        assertFalse(rules.isIgnored(root.resolve("a")));
+    }
+
+    @Test
+    void commentsAndEscapes() throws IOException {
+        IgnoreRules rules = rootRules("# tmp", "\\#tmp", "\\!important", "", "   ");
+        assertFalse(rules.isIgnored(root.resolve("tmp")));
+        assertTrue(rules.isIgnored(root.resolve("#tmp")));
+        assertTrue(rules.isIgnored(root.resolve("!important")));
+    }
+
+    @Test
+    void gitignoreDisabledByDefault() throws IOException {
+        writeGitignore(root, "gen");
+        ConfigManager cfg = new ConfigManager();
+        cfg.set("scan.ignore", "");
+        cfg.set("scan.gitignore", "false");
+        IgnoreRules rules = IgnoreRules.fromConfig(cfg, root.toFile()).enter(root);
+        assertFalse(rules.isIgnored(root.resolve("gen")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.notebookllm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class JsonResultFilterTest {
+
+    /**
+     * 按固定长度切成片段依次送入过滤器，模拟流式输出；结果 JSON 闭合后不再送入
+     */
+    private static String feed(JsonResultFilter filter, String response, int chunkSize) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < response.length() && !filter.isComplete(); i += chunkSize) {
+            out.append(filter.accept(response.substring(i, Math.min(response.length(), i + chunkSize))));
+        }
+        if (!filter.isComplete()) out.append(filter.finish());
+        return out.toString();
+    }
+
+    @Test
+    void bracketsInProseDoNotEndTheStream() {
+        String json = "{\"projectName\": \"demo\", \"tags\": [\"a\", \"b\"]}";
+        String response = "好的，以下是对项目 [demo] 的分析（见 {附录}）：\n```json\n" + json + "\n```\n以上就是全部内容。";
+        for (int size : new int[] { 1, 3, 7, response.length() }) {
+            JsonResultFilter filter = new JsonResultFilter();
+            String out = feed(filter, response, size);
+            assertTrue(filter.isComplete(), "片段长度 " + size);
+            assertTrue(out.startsWith("好的，以下是对项目 [demo] 的分析（见 {附录}）："), out);
+            assertTrue(out.endsWith(json), out);
+            assertFalse(out.contains("以上就是全部内容"), out);
+        }
+    }
+
+    @Test
+    void lineLeadingTextInBracketsIsNotAResult() {
+        String json = "{\"projectName\": \"demo\"}";
+        String response = "[注意] 以下为分析结果\n" + json + "\n说明文字";
+        JsonResultFilter filter = new JsonResultFilter();
+        String out = feed(filter, response, 4);
+        assertTrue(filter.isComplete());
+        assertEquals("[注意] 以下为分析结果\n" + json, out);
+    }
+
+    @Test
+    void batchArrayOfObjectsCompletes() {
+        String json = "[{\"path\": \"a\", \"note\": \"含有 ] 和 } 的字符串\"}, {\"path\": \"b\"}]";
+        String response = "<think>先看看 [a] 和 {b}</think>\n```json\n" + json + "\n```\n结束";
+        JsonResultFilter filter = new JsonResultFilter();
+        String out = feed(filter, response, 5);
+        assertTrue(filter.isComplete());
+        assertEquals("\n\n" + json, out);
+    }
+
+    @Test
+    void replyWithoutJsonPassesThrough() {
+        String response = "抱歉，无法分析项目 [demo]。\n[1] 文件过大\n";
+        JsonResultFilter filter = new JsonResultFilter();
+        String out = feed(filter, response, 2);
+        assertFalse(filter.isComplete());
+        assertEquals(response, out);
+    }
+}